@@ -0,0 +1,113 @@
+package javagame.tetrominoes.benchmarks;
+
+import java.lang.management.ManagementFactory;
+
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDirection;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 零分配检查： 预热后统计稳定状态下移动、旋转、下落固定和消行的线程分配字节数，不为0（或消行没有真正发生）时以非0状态码退出。
+ * 构建的verify阶段会执行这个检查（{@code mvn verify}，{@code -Dexec.skip}跳过）。
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar javagame.tetrominoes.benchmarks.AllocationCheck
+ * </pre>
+ */
+public class AllocationCheck {
+    private static final int WARMUP_ROUNDS = 200000;
+    private static final int MEASURE_ROUNDS = 100000;
+    // 每轮消除的行数
+    private static final int CLEAR_LINES = 4;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    public static void main(final String[] args) {
+        final Board moveBoard = new Board();
+        moveBoard.newShap(Tetrominoes.TShape);
+        moveBoard.tryToMove(MovementDirection.Down, RotationDirection.NoRotation);
+        moveBoard.tryToMove(MovementDirection.Down, RotationDirection.NoRotation);
+
+        final Board clearBoard = new Board();
+
+        moves(moveBoard, WARMUP_ROUNDS);
+        final long overhead = measureOverhead();
+        clears(clearBoard, WARMUP_ROUNDS, overhead);
+
+        final long moveBytes = measure(new Runnable() {
+            public void run() {
+                moves(moveBoard, MEASURE_ROUNDS);
+            }
+        });
+        final long linesBefore = clearBoard.getLinesOfCleared();
+        final long clearBytes = clears(clearBoard, MEASURE_ROUNDS, overhead);
+        final long clearedLines = clearBoard.getLinesOfCleared() - linesBefore;
+
+        System.out.println(String.format("tryToMove: %d bytes / %d rounds", moveBytes, MEASURE_ROUNDS));
+        System.out.println(String.format("lock + clearFullLines: %d bytes / %d rounds, %d lines cleared", clearBytes,
+                MEASURE_ROUNDS, clearedLines));
+
+        if (clearedLines != ((long) CLEAR_LINES * MEASURE_ROUNDS)) {
+            System.out.println("消行没有按预期发生，检查无效");
+            System.exit(1);
+        }
+        if ((moveBytes != 0) || (clearBytes != 0)) {
+            System.exit(1);
+        }
+    }
+
+    private static void moves(final Board board, final int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            board.tryToMove(MovementDirection.Left, RotationDirection.NoRotation);
+            board.tryToMove(MovementDirection.NoMovement, RotationDirection.Left);
+            board.tryToMove(MovementDirection.Right, RotationDirection.NoRotation);
+        }
+    }
+
+    /**
+     * 底部4行在中间一列留空，竖条落入空列后固定，一次消除4行。产生新方块要创建对象，只统计逐格下落、固定和消行的分配。
+     *
+     * @return 分配的字节数
+     */
+    private static long clears(final Board board, final int rounds, final long overhead) {
+        final long threadId = Thread.currentThread().getId();
+        long bytes = 0;
+        for (int i = 0; i < rounds; i++) {
+            BenchmarkSupport.fillLinesWithGap(board, CLEAR_LINES, board.getBoardWidth() / 2);
+            board.newShap(Tetrominoes.LineShape);
+
+            final long start = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+            while (board.tryToMove(MovementDirection.Down, RotationDirection.NoRotation)) {
+                // 下落到底，不能下落时固定
+            }
+            board.clearFullLines();
+            bytes += (THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - start) - overhead;
+        }
+        return bytes;
+    }
+
+    /**
+     * 统计执行过程中当前线程分配的字节数（扣除统计调用本身的分配）。
+     */
+    private static long measure(final Runnable runnable) {
+        final long threadId = Thread.currentThread().getId();
+        final long overhead = measureOverhead();
+
+        final long start = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+        runnable.run();
+        final long end = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+        return (end - start) - overhead;
+    }
+
+    /**
+     * 一次统计调用本身分配的字节数。
+     */
+    private static long measureOverhead() {
+        final long threadId = Thread.currentThread().getId();
+        final long start = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+        final long end = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+        return end - start;
+    }
+}
@@ -0,0 +1,28 @@
+package javagame.tetrominoes.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口： 接受JMH的全部命令行参数，缺省附加GC分析器（统计分配速率）并输出JSON结果文件（target/jmh-result.json），便于按版本发布和比较。
+ */
+public class BenchmarkRunner {
+    public static void main(final String[] args) throws CommandLineOptionException, RunnerException {
+        final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+        final Options options = new OptionsBuilder() //
+                .parent(commandLineOptions) //
+                .addProfiler(GCProfiler.class) //
+                .resultFormat(commandLineOptions.getResultFormat().orElse(ResultFormatType.JSON)) //
+                .result(commandLineOptions.getResult().orElse("target/jmh-result.json")) //
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,53 @@
+package javagame.tetrominoes.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 基准测试公用的局面构造方法。
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * 丢弃控制台输出，避免刷屏和I/O干扰测量。
+     */
+    static void discardConsole() {
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(final int b) {
+                // 丢弃
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) {
+                // 丢弃
+            }
+        }));
+    }
+
+    /**
+     * 从底部开始填满若干行，每行在指定列留一个空格。
+     *
+     * @param board
+     *            数据板
+     * @param lines
+     *            填充的行数
+     * @param gapX
+     *            留空的列，-1表示整行填满
+     */
+    static void fillLinesWithGap(final Board board, final int lines, final int gapX) {
+        for (int y = 0; y < lines; y++) {
+            for (int x = 0; x < board.getBoardWidth(); x++) {
+                if (x != gapX) {
+                    board.setCell(x, y, Tetrominoes.SquareShape);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package javagame.tetrominoes.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDirection;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 数据板热点操作的基准测试： 单步移动、旋转、快速下落（按表面高度一次到位与逐格下落对比）、预填局面的多行消除。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+    private static final Tetrominoes[] TETROMINOES = Tetrominoes.values();
+
+    // 单步移动和旋转使用的数据板，方块停在顶部附近
+    private Board moveBoard;
+    // 快速下落和消行使用的数据板，每次操作前重置
+    private Board dropBoard;
+
+    // 左右交替移动的方向标志
+    private boolean moveLeft;
+    // 快速下落依次使用的方块类型下标
+    private int nextTetrominoes;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.discardConsole();
+
+        moveBoard = new Board();
+        moveBoard.newShap(Tetrominoes.TShape);
+        moveBoard.tryToMove(MovementDirection.Down, RotationDirection.NoRotation);
+        moveBoard.tryToMove(MovementDirection.Down, RotationDirection.NoRotation);
+
+        dropBoard = new Board();
+    }
+
+    /**
+     * 单步移动： 左右交替移动一格。
+     */
+    @Benchmark
+    public boolean move() {
+        moveLeft = !moveLeft;
+        return moveBoard.tryToMove(moveLeft ? MovementDirection.Left : MovementDirection.Right,
+                RotationDirection.NoRotation);
+    }
+
+    /**
+     * 原地旋转一次。
+     */
+    @Benchmark
+    public boolean rotate() {
+        return moveBoard.tryToMove(MovementDirection.NoMovement, RotationDirection.Left);
+    }
+
+    /**
+     * 空数据板上产生一个方块并快速下落（{@link Board#hardDrop()}）。
+     */
+    @Benchmark
+    public int hardDrop() {
+        dropBoard.clearBoard();
+        dropBoard.newShap(TETROMINOES[nextTetrominoes]);
+        nextTetrominoes = (nextTetrominoes + 1) % TETROMINOES.length;
+
+        return dropBoard.hardDrop();
+    }
+
+    /**
+     * 空数据板上产生一个方块并逐格下落到底，作为hardDrop的对照。
+     */
+    @Benchmark
+    public int iterativeDrop() {
+        dropBoard.clearBoard();
+        dropBoard.newShap(TETROMINOES[nextTetrominoes]);
+        nextTetrominoes = (nextTetrominoes + 1) % TETROMINOES.length;
+
+        int distance = 0;
+        while (dropBoard.tryToMove(MovementDirection.Down, RotationDirection.NoRotation)) {
+            distance++;
+        }
+        return distance;
+    }
+
+    /**
+     * 底部4行只差一列的局面，竖条落下后一次消除4行（包括构造局面的开销）。
+     */
+    @Benchmark
+    public int clearFourLines() {
+        dropBoard.clearBoard();
+        BenchmarkSupport.fillLinesWithGap(dropBoard, 4, dropBoard.getBoardWidth() / 2);
+
+        dropBoard.newShap(Tetrominoes.LineShape);
+        while (dropBoard.tryToMove(MovementDirection.Down, RotationDirection.NoRotation)) {
+            // 下落到底
+        }
+        return dropBoard.clearFullLines();
+    }
+
+    /**
+     * 构造局面的开销，用于从clearFourLines中扣除。
+     */
+    @Benchmark
+    public void fillLinesBaseline(final Blackhole blackhole) {
+        dropBoard.clearBoard();
+        BenchmarkSupport.fillLinesWithGap(dropBoard, 4, dropBoard.getBoardWidth() / 2);
+        blackhole.consume(dropBoard);
+    }
+}
@@ -0,0 +1,66 @@
+package javagame.tetrominoes.benchmarks;
+
+import java.nio.IntBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javagame.tetrominoes.env.VectorEnvironment;
+
+/**
+ * 批量环境的基准测试： 每秒推进的环境步数（一次step推进{@value #COUNT}个环境），对比堆内/堆外缓冲区、顺序/并行。
+ * 动作是固定的随机放置，结束的环境在下一步自动重新开始。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EnvironmentBenchmark {
+    private static final int COUNT = 4096;
+
+    @Param({ "false", "true" })
+    private boolean offHeap;
+
+    @Param({ "false", "true" })
+    private boolean parallel;
+
+    private VectorEnvironment environment;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.discardConsole();
+
+        environment = new VectorEnvironment(COUNT, 10, 22, offHeap, parallel ? ForkJoinPool.commonPool() : null);
+        environment.reset(1);
+
+        final Random random = new Random(2);
+        final IntBuffer actions = environment.getActions();
+        for (int i = 0; i < COUNT; i++) {
+            actions.put(i, random.nextInt(environment.getActionCount()));
+        }
+    }
+
+    /**
+     * 推进所有环境一步。
+     */
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void step() {
+        environment.step();
+    }
+}
@@ -0,0 +1,65 @@
+package javagame.tetrominoes.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.data.RandomPieceGenerator;
+import javagame.tetrominoes.engine.GameEngine;
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDirection;
+
+/**
+ * 完整随机对局的基准测试： 随机旋转、随机平移后直接落下，直到游戏结束。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+    private GameEngine engine;
+    private Random random;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.discardConsole();
+
+        engine = new GameEngine(new Board(new RandomPieceGenerator(20180101L)));
+        random = new Random(20180101L);
+    }
+
+    @Benchmark
+    public int randomGame() {
+        engine.stop();
+        engine.start();
+
+        while (!engine.isGameOver()) {
+            final int rotations = random.nextInt(4);
+            for (int i = 0; i < rotations; i++) {
+                engine.tryToMove(MovementDirection.NoMovement, RotationDirection.Left);
+            }
+
+            final int shift = random.nextInt(9) - 4;
+            final MovementDirection direction = (shift < 0) ? MovementDirection.Left : MovementDirection.Right;
+            for (int i = Math.abs(shift); i > 0; i--) {
+                engine.tryToMove(direction, RotationDirection.NoRotation);
+            }
+
+            engine.dropDown();
+        }
+        return engine.getBoard().getScores();
+    }
+}
@@ -0,0 +1,85 @@
+package javagame.tetrominoes.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javagame.tetrominoes.data.LargeBoard;
+import javagame.tetrominoes.data.RandomPieceGenerator;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 超大数据板的基准测试： 在数万行高的数据板上快速下落（堆在中间，接近顶部时清空），以及竖条一次消除4行。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LargeBoardBenchmark {
+    private static final int BOARD_HEIGHT = 20000;
+
+    @Param({ "1024", "4096" })
+    private int boardWidth;
+
+    // 快速下落使用的数据板
+    private LargeBoard dropBoard;
+    // 消行使用的数据板： 底部4行只差中间一列
+    private LargeBoard clearBoard;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.discardConsole();
+
+        dropBoard = new LargeBoard(boardWidth, BOARD_HEIGHT, new RandomPieceGenerator(1));
+        clearBoard = new LargeBoard(boardWidth, BOARD_HEIGHT, new RandomPieceGenerator(1));
+        fillLines();
+    }
+
+    /**
+     * 产生一个方块并快速下落、消行。
+     */
+    @Benchmark
+    public int hardDrop() {
+        if (dropBoard.getTop() > (BOARD_HEIGHT - 8)) {
+            dropBoard.clearBoard();
+        }
+        dropBoard.newShap();
+        final int distance = dropBoard.hardDrop();
+        dropBoard.clearFullLines();
+        return distance;
+    }
+
+    /**
+     * 竖条在出现的列（中间列，宽度为64的倍数时是一个字的第0位）落下一次消除4行，然后补回4行（补回的开销与宽度成正比）。
+     */
+    @Benchmark
+    public int clearFourLines() {
+        clearBoard.newShap(Tetrominoes.LineShape);
+        clearBoard.hardDrop();
+        final int lines = clearBoard.clearFullLines();
+        fillLines();
+        return lines;
+    }
+
+    private void fillLines() {
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < boardWidth; x++) {
+                if (x != (boardWidth / 2)) {
+                    clearBoard.setCell(x, y, Tetrominoes.TShape);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package javagame.tetrominoes.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javagame.tetrominoes.ai.HeuristicEvaluator;
+import javagame.tetrominoes.ai.Placement;
+import javagame.tetrominoes.ai.PlacementSearch;
+import javagame.tetrominoes.ai.TranspositionCache;
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDirection;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 电脑玩家放置方案搜索的基准测试，结束时打印每秒评估的放置方案数和置换表的命中率。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+    private Board board;
+    private PlacementSearch search;
+    private PlacementSearch cachedSearch;
+
+    @Setup
+    public void setup() {
+        board = new Board();
+        // 底部有空洞和起伏的中盘局面
+        BenchmarkSupport.fillLinesWithGap(board, 4, 7);
+        board.setCell(2, 1, null);
+        board.setCell(0, 4, Tetrominoes.LShape);
+        board.setCell(1, 4, Tetrominoes.LShape);
+        board.setCell(5, 4, Tetrominoes.TShape);
+        board.newShap(Tetrominoes.TShape);
+        board.tryToMove(MovementDirection.Down, RotationDirection.NoRotation);
+
+        search = new PlacementSearch(new HeuristicEvaluator());
+        cachedSearch = new PlacementSearch(new HeuristicEvaluator(), ForkJoinPool.commonPool(),
+                new TranspositionCache(1 << 16));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println(String.format("placements/s: %.0f, cache hit rate: %.3f", search.getPlacementsPerSecond(),
+                cachedSearch.getCache().getHitRate()));
+    }
+
+    @Benchmark
+    public Placement searchCurrentPiece() {
+        return search.findBest(board);
+    }
+
+    @Benchmark
+    public Placement searchWithOnePreview() {
+        return search.findBest(board, Tetrominoes.LineShape);
+    }
+
+    @Benchmark
+    public Placement searchWithTwoPreviews() {
+        return search.findBest(board, Tetrominoes.LineShape, Tetrominoes.SShape);
+    }
+
+    /**
+     * 使用置换表，每次搜索前清空（只利用一次搜索内部重复的局面）。
+     */
+    @Benchmark
+    public Placement searchWithTwoPreviewsCached() {
+        cachedSearch.getCache().clear();
+        return cachedSearch.findBest(board, Tetrominoes.LineShape, Tetrominoes.SShape);
+    }
+}
@@ -0,0 +1,71 @@
+package javagame.tetrominoes.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javagame.tetrominoes.data.BagPieceGenerator;
+import javagame.tetrominoes.data.Coords;
+import javagame.tetrominoes.data.PieceGenerator;
+import javagame.tetrominoes.data.RandomPieceGenerator;
+import javagame.tetrominoes.data.Shape;
+import javagame.tetrominoes.enums.RotationDirection;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 方块相关计算的基准测试： 旋转计算、取所占行、随机产生方块类型、方块序列生成器。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShapeBenchmark {
+    private Shape shape;
+    private PieceGenerator uniformGenerator;
+    private PieceGenerator bagGenerator;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.discardConsole();
+
+        shape = new Shape(new Coords(5, 10), Tetrominoes.LShape);
+        uniformGenerator = new RandomPieceGenerator(20180101L);
+        bagGenerator = new BagPieceGenerator(20180101L);
+    }
+
+    @Benchmark
+    public Coords[] computeRotation() {
+        return shape.computeRotation(RotationDirection.Left);
+    }
+
+    @Benchmark
+    public Object getAllY() {
+        return shape.getAllY();
+    }
+
+    @Benchmark
+    public Tetrominoes buidRandomTetrominoes() {
+        return Tetrominoes.buidRandomTetrominoes();
+    }
+
+    @Benchmark
+    public Tetrominoes uniformGeneratorNext() {
+        return uniformGenerator.next();
+    }
+
+    @Benchmark
+    public Tetrominoes bagGeneratorNext() {
+        return bagGenerator.next();
+    }
+}
@@ -0,0 +1,86 @@
+package javagame.tetrominoes.benchmarks;
+
+import java.util.Random;
+
+import javagame.tetrominoes.data.Coords;
+import javagame.tetrominoes.data.ShapeTable;
+import javagame.tetrominoes.enums.RotationDegree;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 预计算表的交叉检查： 在随机的数据板上，对每种方块、每个角度、边界内外的每个原点位置，比较{@link ShapeTable#collides}
+ * 与逐个顶点计算坐标的碰撞检测结果，有不一致时输出该情况并以非0状态码退出，可以作为构建门禁。
+ * <p>
+ * 缺省2000个10 × 22的随机数据板，共约2500万种情况。
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar javagame.tetrominoes.benchmarks.ShapeTableCheck [数据板数] [种子]
+ * </pre>
+ */
+public class ShapeTableCheck {
+    private static final int BOARD_WIDTH = 10;
+    private static final int BOARD_HEIGHT = 22;
+    // 原点坐标超出数据板的范围，覆盖方块部分或全部在边界外的情况
+    private static final int MARGIN = 3;
+    // 最多输出的不一致情况
+    private static final int MAX_REPORTS = 10;
+
+    public static void main(final String[] args) {
+        final int boards = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+        final long seed = (args.length > 1) ? Long.parseLong(args[1]) : 3;
+
+        final Random random = new Random(seed);
+        final long[] rows = new long[BOARD_HEIGHT];
+        final long fullRowMask = (1L << BOARD_WIDTH) - 1;
+        long cases = 0;
+        long mismatches = 0;
+        for (int i = 0; i < boards; i++) {
+            // 每格约1/8的概率有方格
+            for (int y = 0; y < BOARD_HEIGHT; y++) {
+                rows[y] = random.nextLong() & random.nextLong() & random.nextLong() & fullRowMask;
+            }
+
+            for (final Tetrominoes tetrominoes : Tetrominoes.values()) {
+                for (final RotationDegree degree : RotationDegree.values()) {
+                    final ShapeTable shapeTable = ShapeTable.of(tetrominoes, degree);
+                    final Coords[] vertexes = tetrominoes.getVertexes(degree);
+                    for (int x = -MARGIN; x < (BOARD_WIDTH + MARGIN); x++) {
+                        for (int y = -MARGIN; y < (BOARD_HEIGHT + MARGIN); y++) {
+                            cases++;
+                            final boolean expected = collides(vertexes, rows, x, y);
+                            if (shapeTable.collides(rows, BOARD_WIDTH, x, y) != expected) {
+                                mismatches++;
+                                if (mismatches <= MAX_REPORTS) {
+                                    System.out.println(String.format("不一致: 数据板 %d, %s %s (%d, %d), 应为 %b", i,
+                                            tetrominoes, degree, x, y, expected));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        System.out.println(String.format("ShapeTable.collides: %d cases, %d mismatches", cases, mismatches));
+        if (mismatches != 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 逐个顶点计算坐标的碰撞检测（预计算表之前的做法）。
+     */
+    private static boolean collides(final Coords[] vertexes, final long[] rows, final int x, final int y) {
+        for (final Coords vertex : vertexes) {
+            final int cellX = x + vertex.getX();
+            final int cellY = y + vertex.getY();
+            if ((cellX < 0) || (cellX >= BOARD_WIDTH) || (cellY < 0) || (cellY >= BOARD_HEIGHT)) {
+                return true;
+            }
+            if ((rows[cellY] & (1L << cellX)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
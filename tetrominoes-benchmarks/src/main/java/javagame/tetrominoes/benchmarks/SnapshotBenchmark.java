@@ -0,0 +1,63 @@
+package javagame.tetrominoes.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.data.BoardCodec;
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDirection;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 数据板快照编解码的基准测试（半满的局面加一个正在下落的方块）。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SnapshotBenchmark {
+    private Board board;
+    private Board target;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setup() {
+        board = new Board();
+        BenchmarkSupport.fillLinesWithGap(board, board.getBoardHight() / 2, 3);
+        board.newShap(Tetrominoes.TShape);
+        board.tryToMove(MovementDirection.Down, RotationDirection.Left);
+
+        target = new Board();
+        buffer = ByteBuffer.allocateDirect(BoardCodec.encodedSize(board));
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        buffer.clear();
+        BoardCodec.encode(board, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public Board decode() {
+        buffer.clear();
+        BoardCodec.encode(board, buffer);
+        buffer.flip();
+        BoardCodec.decode(buffer, target);
+        return target;
+    }
+}
@@ -0,0 +1,89 @@
+package javagame.tetrominoes.ai;
+
+import java.util.concurrent.ForkJoinPool;
+
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.data.PieceGenerator;
+import javagame.tetrominoes.engine.GameEngine;
+import javagame.tetrominoes.enums.GameState;
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDirection;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 电脑玩家： 搜索当前方块最好的放置方案，然后像玩家一样通过游戏引擎旋转、平移、落下。
+ */
+public class AiPlayer {
+    // 缺省置换表的项数（约6MB）
+    private static final int DEFAULT_CACHE_CAPACITY = 1 << 18;
+
+    private final GameEngine engine;
+    private final PlacementSearch search;
+    // 没有指定后续方块时，从方块序列生成器预览的个数
+    private int previewDepth;
+
+    public AiPlayer(final GameEngine engine) {
+        this(engine, new PlacementSearch(new HeuristicEvaluator(), ForkJoinPool.commonPool(),
+                new TranspositionCache(DEFAULT_CACHE_CAPACITY)));
+    }
+
+    public AiPlayer(final GameEngine engine, final PlacementSearch search) {
+        this.engine = engine;
+        this.search = search;
+    }
+
+    /**
+     * 放置当前方块。
+     *
+     * @param preview
+     *            已知的后续方块，用于前瞻；为空时从方块序列生成器预览{@link #getPreviewDepth()}个
+     * @return 是否执行了放置（游戏不在运行中时返回false）
+     */
+    public boolean playPiece(final Tetrominoes... preview) {
+        if (engine.getGameState() != GameState.Running) {
+            return false;
+        }
+
+        final Board board = engine.getBoard();
+        Tetrominoes[] lookahead = preview;
+        if ((lookahead.length == 0) && (previewDepth > 0)) {
+            final PieceGenerator pieceGenerator = board.getPieceGenerator();
+            lookahead = new Tetrominoes[Math.min(previewDepth, pieceGenerator.getPreviewSize())];
+            for (int i = 0; i < lookahead.length; i++) {
+                lookahead[i] = pieceGenerator.peek(i);
+            }
+        }
+
+        final Placement placement = search.findBest(board, lookahead);
+        if (placement != null) {
+            for (int i = 0; i < placement.getRotations(); i++) {
+                engine.tryToMove(MovementDirection.NoMovement, RotationDirection.Left);
+            }
+
+            final int x = board.getCurShape().getCurCoords().getX();
+            final MovementDirection direction = (placement.getX() < x) ? MovementDirection.Left
+                    : MovementDirection.Right;
+            for (int i = Math.abs(placement.getX() - x); i > 0; i--) {
+                engine.tryToMove(direction, RotationDirection.NoRotation);
+            }
+        }
+
+        engine.dropDown();
+        return true;
+    }
+
+    public int getPreviewDepth() {
+        return previewDepth;
+    }
+
+    /**
+     * 设置从方块序列生成器预览的个数（前瞻的层数），每多一层搜索量约增加30多倍。
+     */
+    public void setPreviewDepth(final int previewDepth) {
+        this.previewDepth = Math.max(0, previewDepth);
+    }
+
+    public PlacementSearch getSearch() {
+        return search;
+    }
+}
@@ -0,0 +1,20 @@
+package javagame.tetrominoes.ai;
+
+import javagame.tetrominoes.data.BoardFeatures;
+
+/**
+ * 局面评估接口。搜索时会在多个线程中同时调用，实现必须是无状态（线程安全）的。
+ */
+public interface Evaluator {
+
+    /**
+     * 评估方块放置后的局面。
+     *
+     * @param features
+     *            方块固定并消行后的数据板的局面特征
+     * @param linesCleared
+     *            本次放置（含前瞻的各步）共消除的行数
+     * @return 评分，越大越好
+     */
+    double evaluate(BoardFeatures features, int linesCleared);
+}
@@ -0,0 +1,37 @@
+package javagame.tetrominoes.ai;
+
+import javagame.tetrominoes.data.BoardFeatures;
+
+/**
+ * 启发式局面评估： 各列高度之和、消除行数、空洞数、相邻列高度差之和的线性加权。
+ */
+public class HeuristicEvaluator implements Evaluator {
+    // 缺省权重（各列高度之和、消除行数、空洞数、相邻列高度差之和）
+    private static final double DEFAULT_AGGREGATE_HEIGHT_WEIGHT = -0.510066;
+    private static final double DEFAULT_LINES_WEIGHT = 0.760666;
+    private static final double DEFAULT_HOLES_WEIGHT = -0.35663;
+    private static final double DEFAULT_BUMPINESS_WEIGHT = -0.184483;
+
+    private final double aggregateHeightWeight;
+    private final double linesWeight;
+    private final double holesWeight;
+    private final double bumpinessWeight;
+
+    public HeuristicEvaluator() {
+        this(DEFAULT_AGGREGATE_HEIGHT_WEIGHT, DEFAULT_LINES_WEIGHT, DEFAULT_HOLES_WEIGHT, DEFAULT_BUMPINESS_WEIGHT);
+    }
+
+    public HeuristicEvaluator(final double aggregateHeightWeight, final double linesWeight,
+            final double holesWeight, final double bumpinessWeight) {
+        this.aggregateHeightWeight = aggregateHeightWeight;
+        this.linesWeight = linesWeight;
+        this.holesWeight = holesWeight;
+        this.bumpinessWeight = bumpinessWeight;
+    }
+
+    public double evaluate(final BoardFeatures features, final int linesCleared) {
+        // 局面特征由数据板增量维护，不需要扫描
+        return (aggregateHeightWeight * features.getAggregateHeight()) + (linesWeight * linesCleared)
+                + (holesWeight * features.getHoles()) + (bumpinessWeight * features.getBumpiness());
+    }
+}
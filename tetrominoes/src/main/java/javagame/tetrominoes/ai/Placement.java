@@ -0,0 +1,36 @@
+package javagame.tetrominoes.ai;
+
+/**
+ * 一个方块的放置方案： 先向左旋转若干次，再平移到目标列，然后直接落下。
+ */
+public class Placement {
+    // 向左旋转的次数（0到3）
+    private final int rotations;
+    // 目标原点x坐标
+    private final int x;
+    // 评分
+    private final double score;
+
+    public Placement(final int rotations, final int x, final double score) {
+        this.rotations = rotations;
+        this.x = x;
+        this.score = score;
+    }
+
+    public int getRotations() {
+        return rotations;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Placement(rotations=%d, x=%d, score=%.4f)", rotations, x, score);
+    }
+}
@@ -0,0 +1,321 @@
+package javagame.tetrominoes.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.data.Shape;
+import javagame.tetrominoes.data.ShapeTable;
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDegree;
+import javagame.tetrominoes.enums.RotationDirection;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 方块放置方案搜索： 枚举当前方块所有的（旋转, 列）放置方案，对已知的后续方块逐层前瞻，取最好的一个。
+ * <p>
+ * 每个放置方案是一个Fork/Join任务，在数据板副本上通过{@link Board#tryToMove}模拟（与实际操作的结果一致），
+ * 前瞻的各层继续拆分任务，可以利用所有的CPU核。最后一层（占绝大多数）的任务不再拆分，每个工作线程重复使用同一个副本；
+ * 前面各层的副本是下一层任务的数据来源，任务结束前不能被其他任务改写，每个任务单独创建。
+ * <p>
+ * 不同的放置方案常常得到相同的局面（O方块的4个角度、I/S/Z方块的2对角度形状相同），指定了{@link TranspositionCache}时，
+ * 每个方案的评分按（局面的Zobrist哈希值、剩余的后续方块、累计消除的行数）缓存，重复的局面不再评估和前瞻。
+ */
+public class PlacementSearch {
+    // 旋转次数的上限（4次即回到原角度）
+    private static final int MAX_ROTATIONS = RotationDegree.values().length;
+    // 不能到达的放置方案的评分
+    private static final double UNREACHABLE = Double.NEGATIVE_INFINITY;
+    // 导致游戏结束的放置方案的评分（比不能到达的方案好，比其他方案都差）
+    private static final double GAME_OVER = -Double.MAX_VALUE;
+
+    // 累计消除行数在缓存键中的乘数
+    private static final long LINES_KEY = 0x9E3779B97F4A7C15L;
+
+    private final Evaluator evaluator;
+    private final ForkJoinPool pool;
+    // 置换表，为null时不缓存
+    private final TranspositionCache cache;
+    // 每个线程最后一层任务使用的数据板副本
+    private final ThreadLocal<Board> leafBoards = new ThreadLocal<Board>();
+
+    // 统计数据： 已评估的放置方案数
+    private final LongAdder placementsEvaluated = new LongAdder();
+    // 统计数据： 搜索耗费的时间（纳秒）
+    private final LongAdder searchNanos = new LongAdder();
+
+    public PlacementSearch(final Evaluator evaluator) {
+        this(evaluator, ForkJoinPool.commonPool());
+    }
+
+    public PlacementSearch(final Evaluator evaluator, final ForkJoinPool pool) {
+        this(evaluator, pool, null);
+    }
+
+    public PlacementSearch(final Evaluator evaluator, final ForkJoinPool pool, final TranspositionCache cache) {
+        this.evaluator = evaluator;
+        this.pool = pool;
+        this.cache = cache;
+    }
+
+    /**
+     * 搜索当前方块最好的放置方案。
+     *
+     * @param board
+     *            数据板（不会被修改）
+     * @param preview
+     *            已知的后续方块，用于前瞻，可以为空
+     * @return 最好的放置方案，没有可行方案时返回null
+     */
+    public Placement findBest(final Board board, final Tetrominoes... preview) {
+        final long start = System.nanoTime();
+        try {
+            return pool.invoke(new RootTask(board, preview));
+        } finally {
+            searchNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 在数据板上执行一个放置方案： 旋转、平移、落下、消行。
+     *
+     * @param board
+     *            数据板
+     * @param rotations
+     *            向左旋转的次数
+     * @param targetX
+     *            目标原点x坐标
+     * @return 消除的行数，方案不能到达时返回-1
+     */
+    public static int place(final Board board, final int rotations, final int targetX) {
+        for (int i = 0; i < rotations; i++) {
+            if (!board.tryToMove(MovementDirection.NoMovement, RotationDirection.Left)) {
+                return -1;
+            }
+        }
+
+        final Shape shape = board.getCurShape();
+        final MovementDirection direction = (targetX < shape.getCurCoords().getX()) ? MovementDirection.Left
+                : MovementDirection.Right;
+        while (shape.getCurCoords().getX() != targetX) {
+            if (!board.tryToMove(direction, RotationDirection.NoRotation)) {
+                return -1;
+            }
+        }
+
+        board.hardDrop();
+        return board.clearFullLines();
+    }
+
+    /**
+     * 为数据板上的当前方块生成所有放置方案的任务。
+     */
+    private List<PlacementTask> createTasks(final Board board, final Tetrominoes[] preview, final long[] previewKeys,
+            final int depth, final int linesSoFar) {
+        final Shape shape = board.getCurShape();
+        final List<PlacementTask> tasks = new ArrayList<PlacementTask>();
+
+        RotationDegree degree = shape.getRotationDegree();
+        for (int rotations = 0; rotations < MAX_ROTATIONS; rotations++) {
+            final ShapeTable shapeTable = ShapeTable.of(shape.getTetrominoes(), degree);
+            for (int x = shapeTable.getMinX(); x <= shapeTable.getMaxX(board.getBoardWidth()); x++) {
+                tasks.add(new PlacementTask(board, rotations, x, preview, previewKeys, depth, linesSoFar));
+            }
+            degree = degree.rotate(RotationDirection.Left);
+        }
+        return tasks;
+    }
+
+    /**
+     * 缓存键中剩余后续方块的部分： 第i项对应 preview[i..] 的序列。从后往前逐个方块混合（混合函数是双射，空序列为0），
+     * 不同的序列（包括长度不同）得到不同的值。
+     */
+    private static long[] createPreviewKeys(final Tetrominoes[] preview) {
+        final long[] keys = new long[preview.length + 1];
+        for (int i = preview.length - 1; i >= 0; i--) {
+            long z = keys[i + 1] + preview[i].ordinal() + 1;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            keys[i] = z ^ (z >>> 31);
+        }
+        return keys;
+    }
+
+    /**
+     * 根任务： 并行评估当前方块的所有放置方案，选出最好的。
+     */
+    private class RootTask extends RecursiveTask<Placement> {
+        private static final long serialVersionUID = 1L;
+
+        private final Board board;
+        private final Tetrominoes[] preview;
+
+        RootTask(final Board board, final Tetrominoes[] preview) {
+            this.board = board;
+            this.preview = (preview == null) ? new Tetrominoes[0] : preview;
+        }
+
+        @Override
+        protected Placement compute() {
+            if (board.getCurShape() == null) {
+                return null;
+            }
+
+            final List<PlacementTask> tasks = createTasks(board, preview, createPreviewKeys(preview), 0, 0);
+            invokeAll(tasks);
+
+            PlacementTask best = null;
+            double bestScore = UNREACHABLE;
+            for (final PlacementTask task : tasks) {
+                final double score = task.join();
+                if (score > bestScore) {
+                    best = task;
+                    bestScore = score;
+                }
+            }
+
+            return (best == null) ? null : new Placement(best.rotations, best.targetX, bestScore);
+        }
+    }
+
+    /**
+     * 一个放置方案的评估任务： 在副本上放置，有后续方块时继续前瞻，取后续最好的评分。
+     */
+    private class PlacementTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final Board source;
+        private final int rotations;
+        private final int targetX;
+        private final Tetrominoes[] preview;
+        private final long[] previewKeys;
+        // 当前层对应的后续方块下标
+        private final int depth;
+        // 之前各层消除的行数
+        private final int linesSoFar;
+
+        PlacementTask(final Board source, final int rotations, final int targetX, final Tetrominoes[] preview,
+                final long[] previewKeys, final int depth, final int linesSoFar) {
+            this.source = source;
+            this.rotations = rotations;
+            this.targetX = targetX;
+            this.preview = preview;
+            this.previewKeys = previewKeys;
+            this.depth = depth;
+            this.linesSoFar = linesSoFar;
+        }
+
+        @Override
+        protected Double compute() {
+            final Board board = copySource();
+
+            final int lines = place(board, rotations, targetX);
+            if (lines < 0) {
+                return UNREACHABLE;
+            }
+            placementsEvaluated.increment();
+
+            final int totalLines = linesSoFar + lines;
+            if (cache == null) {
+                return evaluate(board, totalLines);
+            }
+
+            final long key = board.getZobristHash() ^ previewKeys[depth] ^ (totalLines * LINES_KEY);
+            final double cached = cache.get(key);
+            if (!Double.isNaN(cached)) {
+                return cached;
+            }
+            final double score = evaluate(board, totalLines);
+            // 下方还要前瞻的层数作为工作量
+            cache.put(key, score, preview.length - depth);
+            return score;
+        }
+
+        /**
+         * 复制数据来源。最后一层的任务执行中不会拆分或等待其他任务，同一线程上不会有两个最后一层的任务交错执行，可以复用线程的副本。
+         */
+        private Board copySource() {
+            if (depth < preview.length) {
+                return new Board(source);
+            }
+
+            final Board board = leafBoards.get();
+            if ((board == null) || (board.getBoardWidth() != source.getBoardWidth())
+                    || (board.getBoardHight() != source.getBoardHight())) {
+                final Board copy = new Board(source);
+                leafBoards.set(copy);
+                return copy;
+            }
+            board.copyFrom(source);
+            return board;
+        }
+
+        /**
+         * 评估放置后的局面，有后续方块时继续前瞻。
+         */
+        private double evaluate(final Board board, final int totalLines) {
+            if (depth >= preview.length) {
+                return evaluator.evaluate(board, totalLines);
+            }
+
+            // 前瞻下一个方块，产生方式与游戏引擎一致
+            board.newShap(preview[depth]);
+            if (!board.tryToMove(MovementDirection.Down, RotationDirection.NoRotation)) {
+                return GAME_OVER;
+            }
+
+            final List<PlacementTask> tasks = createTasks(board, preview, previewKeys, depth + 1, totalLines);
+            if (depth + 1 < preview.length) {
+                // 还有更深的层，继续拆分
+                invokeAll(tasks);
+            }
+
+            double bestScore = GAME_OVER;
+            for (final PlacementTask task : tasks) {
+                final double score = (depth + 1 < preview.length) ? task.join() : task.compute();
+                bestScore = Math.max(bestScore, score);
+            }
+            return bestScore;
+        }
+    }
+
+    public Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    /**
+     * 置换表，没有时返回null。
+     */
+    public TranspositionCache getCache() {
+        return cache;
+    }
+
+    /**
+     * 已评估的放置方案数。
+     */
+    public long getPlacementsEvaluated() {
+        return placementsEvaluated.sum();
+    }
+
+    /**
+     * 每秒评估的放置方案数（按搜索耗费的时间计算）。
+     */
+    public double getPlacementsPerSecond() {
+        final long nanos = searchNanos.sum();
+        if (nanos == 0) {
+            return 0;
+        }
+        return (placementsEvaluated.sum() * 1e9) / nanos;
+    }
+
+    /**
+     * 清零统计数据。
+     */
+    public void resetStatistics() {
+        placementsEvaluated.reset();
+        searchNanos.reset();
+    }
+}
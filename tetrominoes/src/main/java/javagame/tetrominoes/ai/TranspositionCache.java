@@ -0,0 +1,182 @@
+package javagame.tetrominoes.ai;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * 置换表： 固定大小的评分缓存，键为long（由局面的Zobrist哈希值等组合而成），供搜索跳过重复的局面。
+ * <p>
+ * 每个桶有两个槽位，按键的低位选桶。替换策略： 第一个槽位保留工作量（如下方搜索的层数）较大的项，只被工作量不小于它的新项替换；
+ * 第二个槽位总是被替换。这样耗费大的结果不会被大量叶子节点挤掉，最近的结果也总能存下。
+ * <p>
+ * 表是一个long数组，每项三个long： 校验值、评分、工作量，校验值为 键 ^ 评分 ^ 工作量。多个线程不加锁地同时读写，
+ * 读到另一个线程写了一半的项时校验失败，按未命中处理；键的最低位固定为1，空槽位不会被命中。
+ */
+public class TranspositionCache implements TranspositionCacheMBean {
+    private static final String DOMAIN = "javagame.tetrominoes";
+    // 每项占用的long个数
+    private static final int ENTRY_SIZE = 3;
+    // 每个桶的项数
+    private static final int WAYS = 2;
+
+    private final long[] table;
+    private final int bucketMask;
+
+    // 统计数据
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder replacements = new LongAdder();
+
+    /**
+     * @param capacity
+     *            项数，向上取整为2的幂
+     */
+    public TranspositionCache(final int capacity) {
+        if ((capacity < WAYS) || (capacity > (1 << 24))) {
+            throw new IllegalArgumentException("置换表大小不合法: " + capacity);
+        }
+
+        final int buckets = (Integer.highestOneBit(capacity - 1) << 1) / WAYS;
+        table = new long[buckets * WAYS * ENTRY_SIZE];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * 查找评分。
+     *
+     * @param key
+     *            键
+     * @return 评分，没有时返回NaN
+     */
+    public double get(final long key) {
+        final long checkedKey = key | 1L;
+        final int bucket = bucketOffset(checkedKey);
+        for (int way = 0; way < WAYS; way++) {
+            final int offset = bucket + (way * ENTRY_SIZE);
+            final long value = table[offset + 1];
+            final long work = table[offset + 2];
+            if ((table[offset] ^ value ^ work) == checkedKey) {
+                hits.increment();
+                return Double.longBitsToDouble(value);
+            }
+        }
+        misses.increment();
+        return Double.NaN;
+    }
+
+    /**
+     * 存入评分。
+     *
+     * @param key
+     *            键
+     * @param score
+     *            评分
+     * @param work
+     *            得到评分的工作量（非负），决定替换的优先级
+     */
+    public void put(final long key, final double score, final int work) {
+        final long checkedKey = key | 1L;
+        final int bucket = bucketOffset(checkedKey);
+        final int second = bucket + ENTRY_SIZE;
+
+        final int offset;
+        if (entryKey(bucket) == checkedKey) {
+            offset = bucket;
+        } else if (entryKey(second) == checkedKey) {
+            offset = second;
+        } else {
+            // 两个槽位都是其他键，第二个槽位的项被挤掉
+            if (table[second] != 0) {
+                replacements.increment();
+            }
+            if (table[bucket + 2] <= work) {
+                // 工作量不小于第一个槽位的项，把它挪到第二个槽位
+                copyEntry(bucket, second);
+                offset = bucket;
+            } else {
+                offset = second;
+            }
+        }
+
+        final long value = Double.doubleToRawLongBits(score);
+        table[offset + 1] = value;
+        table[offset + 2] = work;
+        table[offset] = checkedKey ^ value ^ work;
+        stores.increment();
+    }
+
+    private int bucketOffset(final long checkedKey) {
+        // 最低位固定为1，从第1位开始取桶号
+        return (int) ((checkedKey >>> 1) & bucketMask) * (WAYS * ENTRY_SIZE);
+    }
+
+    private long entryKey(final int offset) {
+        return table[offset] ^ table[offset + 1] ^ table[offset + 2];
+    }
+
+    private void copyEntry(final int from, final int to) {
+        table[to + 1] = table[from + 1];
+        table[to + 2] = table[from + 2];
+        table[to] = table[from];
+    }
+
+    /**
+     * 注册到平台的MBean服务器： javagame.tetrominoes:type=TranspositionCache,name=名称。注册失败时只输出到标准错误。
+     */
+    public void register(final String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    new ObjectName(DOMAIN + ":type=TranspositionCache,name=" + name));
+        } catch (final JMException e) {
+            System.err.println("无法注册JMX指标: " + e);
+        }
+    }
+
+    public int getCapacity() {
+        return table.length / ENTRY_SIZE;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 命中率，还没有查找过时为0。
+     */
+    public double getHitRate() {
+        final long hitCount = hits.sum();
+        final long total = hitCount + misses.sum();
+        return (total == 0) ? 0 : ((double) hitCount / total);
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * 存入时覆盖了其他键的次数。
+     */
+    public long getReplacements() {
+        return replacements.sum();
+    }
+
+    /**
+     * 清空表和统计数据（不能与查找、存入同时进行）。
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        hits.reset();
+        misses.reset();
+        stores.reset();
+        replacements.reset();
+    }
+}
@@ -0,0 +1,20 @@
+package javagame.tetrominoes.ai;
+
+/**
+ * 置换表的JMX管理接口。
+ */
+public interface TranspositionCacheMBean {
+    int getCapacity();
+
+    long getHits();
+
+    long getMisses();
+
+    double getHitRate();
+
+    long getStores();
+
+    long getReplacements();
+
+    void clear();
+}
@@ -0,0 +1,110 @@
+package javagame.tetrominoes.data;
+
+import java.util.SplittableRandom;
+
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 方块序列生成器的公共部分： 种子、随机数发生器和预览用的环形缓冲区。取方块和预览都不分配对象。
+ */
+public abstract class AbstractPieceGenerator implements PieceGenerator {
+    // 缺省的预览个数
+    protected static final int DEFAULT_PREVIEW_SIZE = 6;
+
+    // 方块类型数组缓存
+    protected static final Tetrominoes[] TETROMINOES = Tetrominoes.values();
+
+    // 预览的环形缓冲区
+    private final Tetrominoes[] preview;
+    // 环形缓冲区中下一个方块的位置
+    private int head;
+
+    private long seed;
+    // 已取出的方块个数
+    private long position;
+    // 随机数发生器（SplittableRandom不加锁，取随机数不分配对象）
+    private SplittableRandom random;
+
+    /**
+     * 子类构造完自己的状态后需要调用{@link #reset(long)}开始序列。
+     *
+     * @param previewSize
+     *            可预览的方块个数
+     */
+    protected AbstractPieceGenerator(final int previewSize) {
+        if (previewSize <= 0) {
+            throw new IllegalArgumentException("预览个数必须大于0: " + previewSize);
+        }
+        preview = new Tetrominoes[previewSize];
+    }
+
+    public Tetrominoes next() {
+        final Tetrominoes tetrominoes = preview[head];
+        preview[head] = generate();
+        head = (head + 1) % preview.length;
+        position++;
+        return tetrominoes;
+    }
+
+    public Tetrominoes peek(final int index) {
+        if ((index < 0) || (index >= preview.length)) {
+            throw new IndexOutOfBoundsException("预览位置超界: " + index);
+        }
+        return preview[(head + index) % preview.length];
+    }
+
+    public int getPreviewSize() {
+        return preview.length;
+    }
+
+    public void reset(final long seed) {
+        this.seed = seed;
+        random = new SplittableRandom(seed);
+        resetSequence();
+
+        head = 0;
+        position = 0;
+        for (int i = 0; i < preview.length; i++) {
+            preview[i] = generate();
+        }
+    }
+
+    public void reset(final long seed, final long position) {
+        if (position < 0) {
+            throw new IllegalArgumentException("序列位置不合法: " + position);
+        }
+
+        reset(seed);
+        // 序列只能顺序产生，逐个取出
+        for (long i = 0; i < position; i++) {
+            next();
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * 子类在重新开始序列时清空自己的状态。
+     */
+    protected void resetSequence() {
+        // 缺省没有状态
+    }
+
+    /**
+     * 子类产生序列中的下一个方块。
+     */
+    protected abstract Tetrominoes generate();
+
+    /**
+     * 产生 [0, bound) 范围内的随机整数。
+     */
+    protected int nextInt(final int bound) {
+        return random.nextInt(bound);
+    }
+}
@@ -0,0 +1,54 @@
+package javagame.tetrominoes.data;
+
+import javagame.tetrominoes.enums.Randomizer;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 7袋随机的方块序列： 7种方块装一袋，打乱顺序后依次取出，取完再装下一袋，任意两个相同方块的间隔不超过12个。
+ */
+public class BagPieceGenerator extends AbstractPieceGenerator {
+    // 当前袋子中的方块
+    private final Tetrominoes[] bag = new Tetrominoes[TETROMINOES.length];
+    // 袋子中下一个取出的方块下标（与序列位置getPosition()无关）
+    private int bagIndex;
+
+    public BagPieceGenerator(final long seed) {
+        this(seed, DEFAULT_PREVIEW_SIZE);
+    }
+
+    public BagPieceGenerator(final long seed, final int previewSize) {
+        super(previewSize);
+        reset(seed);
+    }
+
+    @Override
+    protected void resetSequence() {
+        bagIndex = bag.length;
+    }
+
+    public Randomizer getRandomizer() {
+        return Randomizer.SevenBag;
+    }
+
+    @Override
+    protected Tetrominoes generate() {
+        if (bagIndex >= bag.length) {
+            refill();
+        }
+        return bag[bagIndex++];
+    }
+
+    /**
+     * 重新装袋并打乱（Fisher-Yates洗牌）。
+     */
+    private void refill() {
+        System.arraycopy(TETROMINOES, 0, bag, 0, bag.length);
+        for (int i = bag.length - 1; i > 0; i--) {
+            final int j = nextInt(i + 1);
+            final Tetrominoes t = bag[i];
+            bag[i] = bag[j];
+            bag[j] = t;
+        }
+        bagIndex = 0;
+    }
+}
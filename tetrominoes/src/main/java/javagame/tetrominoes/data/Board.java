@@ -1,18 +1,34 @@
 package javagame.tetrominoes.data;
 
 import java.awt.Color;
-import java.io.Serializable;
+import java.util.Arrays;
 
+import javagame.tetrominoes.enums.LogEvent;
 import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDegree;
 import javagame.tetrominoes.enums.RotationDirection;
+import javagame.tetrominoes.enums.Tetrominoes;
+import javagame.tetrominoes.log.EventLog;
 
 /**
  * 俄罗斯方块控制区的数据板实体。
+ * <p>
+ * 已固定的方格按行存放为位掩码（每行一个long，第x位表示第x列），碰撞检测查{@link ShapeTable}后按行位与，满行判断为一次比较，消行为数组平移；
+ * 方格颜色单独存放在紧凑的颜色平面中，仅供绘画使用。当前正在动作的方块不写入位掩码，固定（落地）时才合并进去。
+ * <p>
+ * 每列的表面高度、空洞数、高度差、井深等局面特征（{@link BoardFeatures}）随方格变化增量维护，评估局面时不需要扫描数据板。
+ * 已固定方格的Zobrist哈希值也随之增量维护（{@link #getZobristHash()}），搜索时用来识别重复的局面。
+ * <p>
+ * 数据板不是线程安全的，只由游戏引擎所在的线程修改；其他线程（绘制、状态栏）读取引擎发布的{@code BoardSnapshot}。
  */
-public class Board implements Serializable {
-    private static final long serialVersionUID = -4663437492142402258L;
+public class Board implements BoardFeatures {
     private static final int BOARD_WIDTH = 10;
     private static final int BOARD_HEIGHT = 22;
+    // 行位掩码支持的最大宽度
+    private static final int MAX_BOARD_WIDTH = Long.SIZE;
+
+    // 方块类型数组缓存（Tetrominoes.values()每次调用都会复制数组）
+    private static final Tetrominoes[] TETROMINOES = Tetrominoes.values();
 
     // 宽度（几个方格）
     private final int boardWidth;
@@ -22,11 +38,42 @@ public class Board implements Serializable {
     // 新方块出现的初始位置（非必要放在Class级别）
     private final Coords initialCoords;
 
-    // 数据板，二维数组，存放所有方格的信息，每个方格位置存放对应的方块对象
-    private final Shape[][] board;
+    // 方块序列生成器
+    private final PieceGenerator pieceGenerator;
+
+    // 行位掩码数组，下标为y，第x位为1表示方格(x, y)已被占用
+    private final long[] rows;
+    // 满行的位掩码
+    private final long fullRowMask;
+    // 颜色平面，下标为 y * boardWidth + x，存放方块类型序号+1，0表示空
+    private final byte[] colors;
+    // 每列的表面高度： 该列最高的已占用方格的y坐标+1，空列为0
+    private final int[] heights;
+    // 每列已占用的方格数
+    private final int[] columnCells;
+    // 局面特征： 已占用的方格总数、各列高度之和、相邻列高度差之和、各列井深之和
+    private int cellCount;
+    private int aggregateHeight;
+    private int bumpiness;
+    private int wellDepthSum;
+    // 表面版本号： 已固定的方格每变化一次加1
+    private int surfaceVersion;
+    // 已固定方格的Zobrist哈希值： 各已占用方格的键的异或
+    private long zobristHash;
+
+    // 落点缓存： 方块类型、角度、原点x坐标、表面都没变时，按表面计算的落点不变（与方块当前的y坐标无关）
+    private Tetrominoes landingTetrominoes;
+    private RotationDegree landingDegree;
+    private int landingX;
+    private int landingSurfaceVersion = -1;
+    private int surfaceLandingY;
 
     // 当前正在动作的方块
     private Shape curShape;
+    // 当前方块是否已经固定到数据板中
+    private boolean curShapeLocked;
+    // 最低的已满行（方块固定或设置方格使行变满时记下），已满的行都不低于它，没有已满的行时为数据板高度
+    private int lowestFullRow;
 
     // 统计数据： 消除的行数
     private int linesOfCleared;
@@ -37,165 +84,587 @@ public class Board implements Serializable {
         this(Board.BOARD_WIDTH, Board.BOARD_HEIGHT);
     }
 
+    public Board(final PieceGenerator pieceGenerator) {
+        this(Board.BOARD_WIDTH, Board.BOARD_HEIGHT, pieceGenerator);
+    }
+
     public Board(final int boardWidth, final int boardHight) {
+        this(boardWidth, boardHight, new RandomPieceGenerator(System.nanoTime()));
+    }
+
+    public Board(final int boardWidth, final int boardHight, final PieceGenerator pieceGenerator) {
+        if ((boardWidth <= 0) || (boardWidth > Board.MAX_BOARD_WIDTH) || (boardHight <= 0)) {
+            throw new IllegalArgumentException("数据板尺寸不合法: " + boardWidth + " x " + boardHight
+                    + (boardWidth > Board.MAX_BOARD_WIDTH ? "，超过64列请使用LargeBoard" : ""));
+        }
+
         this.boardWidth = boardWidth;
         this.boardHight = boardHight;
+        this.pieceGenerator = pieceGenerator;
         // 根据方块数据板大小设置生成方块的初始位置
         initialCoords = new Coords((boardWidth / 2), boardHight - 1);
 
-        board = new Shape[boardWidth][boardHight];
+        rows = new long[boardHight];
+        fullRowMask = (boardWidth == Board.MAX_BOARD_WIDTH) ? -1L : ((1L << boardWidth) - 1);
+        colors = new byte[boardWidth * boardHight];
+        heights = new int[boardWidth];
+        columnCells = new int[boardWidth];
         clearBoard();
     }
 
-    public synchronized void clearBoard() {
+    /**
+     * 创建另一个数据板的副本，用于在副本上模拟。副本与原数据板共用方块序列生成器（不创建新的生成器），
+     * 模拟时应该用{@link #newShap(Tetrominoes)}指定方块类型，不要从生成器取方块。
+     *
+     * @param other
+     *            被复制的数据板
+     */
+    public Board(final Board other) {
+        this(other.boardWidth, other.boardHight, other.pieceGenerator);
+        copyFrom(other);
+    }
+
+    public void clearBoard() {
         linesOfCleared = 0;
         scores = 0;
 
-        for (int i = 0; i < boardWidth; i++) {
-            for (int j = 0; j < boardHight; j++) {
-                board[i][j] = null;
-            }
+        curShape = null;
+        curShapeLocked = false;
+        lowestFullRow = boardHight;
+
+        Arrays.fill(rows, 0L);
+        Arrays.fill(colors, (byte) 0);
+        Arrays.fill(heights, 0);
+        Arrays.fill(columnCells, 0);
+        cellCount = 0;
+        zobristHash = 0;
+        updateSurfaceFeatures();
+        surfaceVersion++;
+    }
+
+    /**
+     * 复制另一个同样尺寸的数据板的全部内容（已固定的方格、当前方块、统计数据），用于在副本上模拟。
+     *
+     * @param other
+     *            被复制的数据板
+     */
+    public void copyFrom(final Board other) {
+        if ((other.boardWidth != boardWidth) || (other.boardHight != boardHight)) {
+            throw new IllegalArgumentException("数据板尺寸不一致");
         }
+
+        System.arraycopy(other.rows, 0, rows, 0, boardHight);
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
+        System.arraycopy(other.heights, 0, heights, 0, boardWidth);
+        System.arraycopy(other.columnCells, 0, columnCells, 0, boardWidth);
+        cellCount = other.cellCount;
+        aggregateHeight = other.aggregateHeight;
+        bumpiness = other.bumpiness;
+        wellDepthSum = other.wellDepthSum;
+        zobristHash = other.zobristHash;
+        surfaceVersion++;
+
+        curShape = (other.curShape == null) ? null : new Shape(other.curShape);
+        curShapeLocked = other.curShapeLocked;
+        lowestFullRow = other.lowestFullRow;
+
+        linesOfCleared = other.linesOfCleared;
+        scores = other.scores;
+    }
+
+    /**
+     * 从方块序列生成器取出下一个方块作为当前方块。
+     */
+    public void newShap() {
+        curShape = new Shape(initialCoords, pieceGenerator.next());
+        curShapeLocked = false;
+    }
+
+    /**
+     * 产生一个指定类型的新方块。
+     *
+     * @param tetrominoes
+     *            方块类型
+     */
+    public void newShap(final Tetrominoes tetrominoes) {
+        curShape = new Shape(initialCoords, tetrominoes);
+        curShapeLocked = false;
     }
 
-    public synchronized void newShap() {
-        curShape = new Shape(initialCoords);
+    /**
+     * 设置一个已固定的方格，用于构造指定的局面。使某行变满时，该行在下一次{@link #clearFullLines()}时被消除。
+     *
+     * @param x
+     *            x坐标
+     * @param y
+     *            y坐标
+     * @param tetrominoes
+     *            方格所属的方块类型，null表示清空方格
+     */
+    public void setCell(final int x, final int y, final Tetrominoes tetrominoes) {
+        final boolean occupied = isOccupied(x, y);
+        if (tetrominoes == null) {
+            rows[y] &= ~(1L << x);
+            colors[(y * boardWidth) + x] = 0;
+            if (occupied) {
+                columnCells[x]--;
+                cellCount--;
+                zobristHash ^= cellKey(x, y);
+            }
+            if (heights[x] == (y + 1)) {
+                // 清空了表面的方格，向下找新的表面
+                int height = y;
+                while ((height > 0) && !isOccupied(x, height - 1)) {
+                    height--;
+                }
+                setColumnHeight(x, height);
+            }
+        } else {
+            rows[y] |= 1L << x;
+            colors[(y * boardWidth) + x] = (byte) (tetrominoes.ordinal() + 1);
+            if (!occupied) {
+                columnCells[x]++;
+                cellCount++;
+                zobristHash ^= cellKey(x, y);
+            }
+            if (rows[y] == fullRowMask) {
+                lowestFullRow = Math.min(lowestFullRow, y);
+            }
+            setColumnHeight(x, Math.max(heights[x], y + 1));
+        }
+        surfaceVersion++;
     }
 
-    public synchronized boolean tryToMove(final MovementDirection movementDirection,
+    /**
+     * 尝试移动当前方块。向下移动失败时，当前方块落地并固定到数据板中。
+     *
+     * @param movementDirection
+     *            移动方向
+     * @param rotationDirection
+     *            旋转方向
+     * @return 是否移动成功
+     */
+    public boolean tryToMove(final MovementDirection movementDirection,
             final RotationDirection rotationDirection) {
+        if ((curShape == null) || curShapeLocked) {
+            return false;
+        }
+
         if (checkMovable(curShape, movementDirection, rotationDirection)) {
             curShape.moveAndRotate(movementDirection, rotationDirection);
 
-            addOrUpdateShape(curShape);
-
             if (movementDirection == MovementDirection.Down) {
                 scores = scores + 1;
             }
             return true;
         }
+
+        if (movementDirection == MovementDirection.Down) {
+            lockShape(curShape);
+        }
         return false;
     }
 
-    private boolean checkMovable(final Shape shape, final MovementDirection movementDirection,
-            final RotationDirection rotationDirection) {
-
-        final Coords targetBaseCoords = shape.computeMovable(movementDirection);
-        final Coords[] targetRotationVertexes = shape.computeRotation(rotationDirection);
+    /**
+     * 快速下落： 一次移动到落点（{@link #getLandingY()}）并固定，每下落一格得1分（与逐格下落相同）。
+     *
+     * @return 下落的格数，没有当前方块或已固定时返回-1
+     */
+    public int hardDrop() {
+        if ((curShape == null) || curShapeLocked) {
+            return -1;
+        }
 
-        final int baseX = targetBaseCoords.getX();
-        final int baseY = targetBaseCoords.getY();
+        final int distance = curShape.getCurCoords().getY() - getLandingY();
+        if (distance > 0) {
+            curShape.dropBy(distance);
+            scores = scores + distance;
+        }
+        lockShape(curShape);
+        return distance;
+    }
 
-        for (final Coords coord : targetRotationVertexes) {
-            final int x = coord.getX() + baseX;
-            final int y = coord.getY() + baseY;
+    /**
+     * 当前方块快速下落后原点的y坐标（落点），用于快速下落和落点预览。
+     * <p>
+     * 由每列的表面高度和方块的底部轮廓直接算出，结果按方块类型、角度、原点x坐标缓存，只有左右移动、旋转或已固定的方格变化后才重新计算；
+     * 方块在悬空部分的下方（某列的底部低于该列表面）时，改为逐行检测碰撞。
+     *
+     * @return 落点的y坐标，没有当前方块或已固定时返回{@link Integer#MIN_VALUE}，方块有列在数据板外时返回当前的y坐标
+     */
+    public int getLandingY() {
+        if ((curShape == null) || curShapeLocked) {
+            return Integer.MIN_VALUE;
+        }
 
-            if ((x < 0) || (x >= Board.BOARD_WIDTH) || (y < 0) || (y >= Board.BOARD_HEIGHT)) {
-                return false;
+        final ShapeTable shapeTable = curShape.getShapeTable();
+        final Coords curCoords = curShape.getCurCoords();
+        final int baseX = curCoords.getX();
+        final int baseY = curCoords.getY();
+        if ((baseX < shapeTable.getMinX()) || (baseX > shapeTable.getMaxX(boardWidth))) {
+            // 方块有列在数据板外（窄数据板上新方块出现的位置），与逐格下落一样不能下落
+            return baseY;
+        }
+        if ((landingSurfaceVersion != surfaceVersion) || (landingX != baseX)
+                || (landingTetrominoes != curShape.getTetrominoes())
+                || (landingDegree != curShape.getRotationDegree())) {
+            landingTetrominoes = curShape.getTetrominoes();
+            landingDegree = curShape.getRotationDegree();
+            landingX = baseX;
+            landingSurfaceVersion = surfaceVersion;
+
+            final int left = baseX + shapeTable.getMinDx();
+            int landingY = Integer.MIN_VALUE;
+            for (int column = 0; column < shapeTable.getWidth(); column++) {
+                landingY = Math.max(landingY, heights[left + column] - shapeTable.getBottomDy(column));
             }
+            surfaceLandingY = landingY;
+        }
 
-            final Shape shapeAt = board[x][y];
-            if ((shapeAt != null) && !shapeAt.equals(shape)) {
-                return false;
-            }
+        if (surfaceLandingY <= baseY) {
+            return surfaceLandingY;
         }
 
-        return true;
+        // 在悬空部分的下方，表面高度不适用
+        int landingY = baseY;
+        while (!shapeTable.collides(rows, boardWidth, baseX, landingY - 1)) {
+            landingY--;
+        }
+        return landingY;
     }
 
-    private boolean addOrUpdateShape(final Shape shape) {
-        {
-            final Coords baseCoords = shape.getPreCoords();
-            final int baseX = baseCoords.getX();
-            final int baseY = baseCoords.getY();
-            for (final Coords coord : shape.getPreVertexes()) {
-                final int x = coord.getX() + baseX;
-                final int y = coord.getY() + baseY;
-
-                if ((x < 0) || (x >= Board.BOARD_WIDTH) || (y < 0) || (y >= Board.BOARD_HEIGHT)) {
-                    continue;
-                }
+    private boolean checkMovable(final Shape shape, final MovementDirection movementDirection,
+            final RotationDirection rotationDirection) {
+        // 目标角度和目标原点位置
+        final RotationDegree targetDegree = (rotationDirection == null) ? shape.getRotationDegree()
+                : shape.getRotationDegree().rotate(rotationDirection);
+        final Coords curCoords = shape.getCurCoords();
+        final int targetX = curCoords.getX() + movementDirection.getDx();
+        final int targetY = curCoords.getY() + movementDirection.getDy();
+
+        // 查预计算表，按行掩码检测碰撞
+        return !ShapeTable.of(shape.getTetrominoes(), targetDegree).collides(rows, boardWidth, targetX, targetY);
+    }
 
-                board[x][y] = null;
+    /**
+     * 把落地的方块固定到行位掩码和颜色平面中，同时记下因此变满的行。当前位置不合法（如新方块一出现就重叠）时不固定。
+     */
+    private void lockShape(final Shape shape) {
+        final ShapeTable shapeTable = shape.getShapeTable();
+        final Coords baseCoords = shape.getCurCoords();
+        final int baseX = baseCoords.getX();
+        final int baseY = baseCoords.getY();
+        if (shapeTable.collides(rows, boardWidth, baseX, baseY)) {
+            if (EventLog.WARN_ENABLED) {
+                EventLog.log(LogEvent.ShapeLockRejected, shape.getTetrominoes().ordinal(), baseX, baseY,
+                        shape.getRotationDegree().ordinal());
             }
+            return;
         }
 
-        {
-            final Coords baseCoords = shape.getCurCoords();
-            final int baseX = baseCoords.getX();
-            final int baseY = baseCoords.getY();
-            for (final Coords coord : shape.getVertexes()) {
-                final int x = coord.getX() + baseX;
-                final int y = coord.getY() + baseY;
-
-                if ((x < 0) || (x >= Board.BOARD_WIDTH) || (y < 0) || (y >= Board.BOARD_HEIGHT)) {
-                    System.out.println("方块位置超界(" + x + ", " + y + ")");
-                    return false;
-                }
-
-                if (board[x][y] != null) {
-                    System.out.println("方块内容重叠。");
-                    return false;
-                }
+        lowestFullRow = Math.min(lowestFullRow, shapeTable.lock(rows, fullRowMask, baseX, baseY));
 
-                board[x][y] = shape;
+        final byte color = (byte) (shape.getTetrominoes().ordinal() + 1);
+        for (final Coords coord : shape.getVertexes()) {
+            final int x = coord.getX() + baseX;
+            final int y = coord.getY() + baseY;
+            colors[(y * boardWidth) + x] = color;
+            columnCells[x]++;
+            zobristHash ^= cellKey(x, y);
+            if (heights[x] < (y + 1)) {
+                setColumnHeight(x, y + 1);
             }
         }
-        return true;
+        cellCount += shape.getVertexes().length;
+        surfaceVersion++;
+        curShapeLocked = true;
     }
 
-    public synchronized int clearFullLines() {
-        final Integer[] yList = curShape.getAllY();
-
-        int cleardLines = 0;
-        for (final Integer y : yList) {
-            if (checkLineFullAndClear(y)) {
-                cleardLines++;
-            }
-        }
+    public int clearFullLines() {
+        // 最低的满行在方块固定或设置方格时已经记下，没有满行时不需要扫描，有时从它开始一次压缩全部消除
+        final int cleardLines = (lowestFullRow < boardHight) ? compactFullRows() : 0;
 
         linesOfCleared = linesOfCleared + cleardLines;
+        scores = scores + lineClearScore(cleardLines);
+
+        return cleardLines;
+    }
+
+    /**
+     * 一次消行的得分（没有消行时为1分）。
+     *
+     * @param cleardLines
+     *            消除的行数
+     */
+    public static int lineClearScore(final int cleardLines) {
         switch (cleardLines) {
         case 4:
-            scores = scores + 500;
-            break;
+            return 500;
         case 3:
-            scores = scores + 200;
-            break;
+            return 200;
         case 2:
-            scores = scores + 100;
-            break;
+            return 100;
         case 1:
-            scores = scores + 50;
-            break;
+            return 50;
         default:
-            scores = scores + 1;
-            break;
+            return 1;
+        }
+    }
+
+    /**
+     * 一次压缩消除所有已满的行： 从最低的满行开始，把每段没有满的行整体下移到写入位置，上方的每一行只移动一次，最后清空顶部。
+     *
+     * @return 消除的行数
+     */
+    private int compactFullRows() {
+        final int bottom = lowestFullRow;
+        // 最低的满行以上各行都会移动或清空，先从哈希值中去掉，压缩后再按新位置加回
+        zobristHash ^= rowsKey(bottom, boardHight);
+
+        int write = bottom;
+        int read = write;
+        while (read < boardHight) {
+            // 跳过满行
+            while ((read < boardHight) && isFullRow(read)) {
+                read++;
+            }
+
+            // 一段连续的没有满的行 [read, runEnd)
+            int runEnd = read;
+            while ((runEnd < boardHight) && !isFullRow(runEnd)) {
+                runEnd++;
+            }
+
+            final int length = runEnd - read;
+            if (length > 0) {
+                System.arraycopy(rows, read, rows, write, length);
+                System.arraycopy(colors, read * boardWidth, colors, write * boardWidth, length * boardWidth);
+                write += length;
+            }
+            read = runEnd;
         }
 
+        Arrays.fill(rows, write, boardHight, 0L);
+        Arrays.fill(colors, write * boardWidth, boardHight * boardWidth, (byte) 0);
+        zobristHash ^= rowsKey(bottom, write);
+
+        // 每消除一行，每列都少一个方格
+        final int cleardLines = boardHight - write;
+        for (int x = 0; x < boardWidth; x++) {
+            columnCells[x] -= cleardLines;
+        }
+        cellCount -= cleardLines * boardWidth;
+        lowestFullRow = boardHight;
+        updateHeights(write);
         return cleardLines;
     }
 
-    private boolean checkLineFullAndClear(final Integer y) {
-        for (int x = 0; x < Board.BOARD_WIDTH; x++) {
-            if (board[x][y] == null) {
-                // 该行没有满
-                return false;
+    /**
+     * 重新计算每列的表面高度： 从上往下找每列第一个已占用的方格。
+     *
+     * @param top
+     *            从这一行（不含）往下找，上方必须都是空行
+     */
+    private void updateHeights(final int top) {
+        surfaceVersion++;
+        Arrays.fill(heights, 0);
+        long unresolved = fullRowMask;
+        for (int y = top - 1; (y >= 0) && (unresolved != 0); y--) {
+            long hit = rows[y] & unresolved;
+            unresolved &= ~hit;
+            while (hit != 0) {
+                heights[Long.numberOfTrailingZeros(hit)] = y + 1;
+                hit &= hit - 1;
             }
         }
+        updateSurfaceFeatures();
+    }
 
-        for (int x = 0; x < Board.BOARD_WIDTH; x++) {
-            board[x][y] = null;
+    /**
+     * 修改一列的表面高度，只重新计算受影响的相邻列的高度差和井深。
+     */
+    private void setColumnHeight(final int x, final int height) {
+        final int oldHeight = heights[x];
+        if (oldHeight == height) {
+            return;
         }
 
-        final int maxY = Board.BOARD_HEIGHT - 1;
-        for (int dy = y; dy < maxY; dy++) {
-            for (int x = 0; x < Board.BOARD_WIDTH; x++) {
-                board[x][dy] = board[x][dy + 1];
-                board[x][dy + 1] = null;
+        final int left = Math.max(x - 1, 0);
+        final int right = Math.min(x + 1, boardWidth - 1);
+        for (int column = left; column <= right; column++) {
+            bumpiness -= getBumpinessAt(column);
+            wellDepthSum -= getWellDepth(column);
+        }
+        heights[x] = height;
+        aggregateHeight += height - oldHeight;
+        for (int column = left; column <= right; column++) {
+            bumpiness += getBumpinessAt(column);
+            wellDepthSum += getWellDepth(column);
+        }
+    }
+
+    /**
+     * 按每列的表面高度重新计算各列高度之和、高度差之和、井深之和。
+     */
+    private void updateSurfaceFeatures() {
+        aggregateHeight = 0;
+        bumpiness = 0;
+        wellDepthSum = 0;
+        for (int x = 0; x < boardWidth; x++) {
+            aggregateHeight += heights[x];
+            bumpiness += getBumpinessAt(x);
+            wellDepthSum += getWellDepth(x);
+        }
+    }
+
+    /**
+     * 方格(x, y)的Zobrist键： 由坐标经SplitMix64混合得到，不需要随机数表，任意高度的数据板都适用，同样的局面在每次运行中哈希值都相同。
+     */
+    private static long cellKey(final int x, final int y) {
+        long z = (((long) y << 6) | x) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 行 [from, to) 中已占用方格的Zobrist键的异或。
+     */
+    private long rowsKey(final int from, final int to) {
+        long key = 0;
+        for (int y = from; y < to; y++) {
+            long row = rows[y];
+            while (row != 0) {
+                key ^= cellKey(Long.numberOfTrailingZeros(row), y);
+                row &= row - 1;
             }
         }
-        return true;
+        return key;
+    }
+
+    /**
+     * 第x列与右侧相邻列的高度差（最右列为0）。
+     */
+    private int getBumpinessAt(final int x) {
+        return (x == (boardWidth - 1)) ? 0 : Math.abs(heights[x] - heights[x + 1]);
+    }
+
+    private boolean isFullRow(final int y) {
+        return rows[y] == fullRowMask;
+    }
+
+    /**
+     * 用快照中的数据恢复当前方块和统计数据（行位掩码和颜色平面由{@link BoardCodec}直接写入）。
+     */
+    void restore(final Shape shape, final boolean shapeLocked, final int linesOfCleared,
+            final int scores) {
+        curShape = shape;
+        curShapeLocked = shapeLocked;
+        lowestFullRow = boardHight;
+        cellCount = 0;
+        Arrays.fill(columnCells, 0);
+        for (int y = 0; y < boardHight; y++) {
+            long row = rows[y];
+            if ((row == fullRowMask) && (y < lowestFullRow)) {
+                lowestFullRow = y;
+            }
+            cellCount += Long.bitCount(row);
+            while (row != 0) {
+                columnCells[Long.numberOfTrailingZeros(row)]++;
+                row &= row - 1;
+            }
+        }
+        zobristHash = rowsKey(0, boardHight);
+        updateHeights(boardHight);
+        this.linesOfCleared = linesOfCleared;
+        this.scores = scores;
+    }
+
+    /**
+     * 行位掩码数组（供{@link BoardCodec}读写）。
+     */
+    long[] getRows() {
+        return rows;
+    }
+
+    /**
+     * 颜色平面（供{@link BoardCodec}读写）。
+     */
+    byte[] getColors() {
+        return colors;
+    }
+
+    /**
+     * 当前方块是否已经固定到数据板中。
+     */
+    boolean isCurShapeLocked() {
+        return curShapeLocked;
+    }
+
+    /**
+     * 获取一行已固定方格的位掩码（不包括当前正在动作的方块）。
+     *
+     * @param y
+     *            y坐标
+     * @return 位掩码，第x位为1表示方格(x, y)已被占用
+     */
+    public long getRowBits(final int y) {
+        return rows[y];
+    }
+
+    /**
+     * 获取一列的表面高度（已固定方格中最高的y坐标+1，空列为0）。
+     */
+    public int getColumnHeight(final int x) {
+        return heights[x];
+    }
+
+    public int getAggregateHeight() {
+        return aggregateHeight;
+    }
+
+    public int getHoles() {
+        return aggregateHeight - cellCount;
+    }
+
+    public int getColumnHoles(final int x) {
+        return heights[x] - columnCells[x];
+    }
+
+    public int getBumpiness() {
+        return bumpiness;
+    }
+
+    public int getWellDepth(final int x) {
+        final int left = (x == 0) ? boardHight : heights[x - 1];
+        final int right = (x == (boardWidth - 1)) ? boardHight : heights[x + 1];
+        return Math.max(Math.min(left, right) - heights[x], 0);
+    }
+
+    public int getWellDepthSum() {
+        return wellDepthSum;
+    }
+
+    public long getZobristHash() {
+        return zobristHash;
+    }
+
+    /**
+     * 方格是否已被固定的方块占用（不包括当前正在动作的方块）。
+     */
+    public boolean isOccupied(final int x, final int y) {
+        return (rows[y] & (1L << x)) != 0;
+    }
+
+    /**
+     * 获取当前正在动作的方块。
+     */
+    public Shape getCurShape() {
+        return curShape;
+    }
+
+    public PieceGenerator getPieceGenerator() {
+        return pieceGenerator;
     }
 
     public int getBoardWidth() {
@@ -214,11 +683,68 @@ public class Board implements Serializable {
         return scores;
     }
 
+    /**
+     * 获取方格的颜色，包括已固定的方格和当前正在动作的方块。
+     *
+     * @return 方格颜色，空方格返回null
+     */
     public Color getColor(final int x, final int y) {
-        final Shape shape = board[x][y];
-        if (shape == null) {
+        final Tetrominoes tetrominoes = getTetrominoes(x, y);
+        if (tetrominoes == null) {
+            return null;
+        }
+        return tetrominoes.getColor();
+    }
+
+    /**
+     * 把全部方格（包括当前正在动作的方块）复制到数组中，用于生成快照。
+     *
+     * @param cells
+     *            目标数组，下标为 y * boardWidth + x，值为方块类型序号+1，0表示空
+     */
+    public void copyCells(final byte[] cells) {
+        System.arraycopy(colors, 0, cells, 0, colors.length);
+
+        final Shape shape = curShape;
+        if ((shape == null) || curShapeLocked) {
+            return;
+        }
+
+        final Coords baseCoords = shape.getCurCoords();
+        final byte color = (byte) (shape.getTetrominoes().ordinal() + 1);
+        for (final Coords coord : shape.getVertexes()) {
+            final int x = coord.getX() + baseCoords.getX();
+            final int y = coord.getY() + baseCoords.getY();
+            if ((x >= 0) && (x < boardWidth) && (y >= 0) && (y < boardHight)) {
+                cells[(y * boardWidth) + x] = color;
+            }
+        }
+    }
+
+    /**
+     * 获取方格所属的方块类型，包括已固定的方格和当前正在动作的方块。
+     *
+     * @return 方块类型，空方格返回null
+     */
+    public Tetrominoes getTetrominoes(final int x, final int y) {
+        final int index = colors[(y * boardWidth) + x];
+        if (index != 0) {
+            return Board.TETROMINOES[index - 1];
+        }
+
+        final Shape shape = curShape;
+        if ((shape == null) || curShapeLocked) {
             return null;
         }
-        return shape.getColor();
+
+        final Coords baseCoords = shape.getCurCoords();
+        final int dx = x - baseCoords.getX();
+        final int dy = y - baseCoords.getY();
+        for (final Coords coord : shape.getVertexes()) {
+            if ((coord.getX() == dx) && (coord.getY() == dy)) {
+                return shape.getTetrominoes();
+            }
+        }
+        return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,282 @@
+package javagame.tetrominoes.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javagame.tetrominoes.enums.Randomizer;
+import javagame.tetrominoes.enums.RotationDegree;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 数据板的二进制快照编解码，取代Java序列化。
+ * <p>
+ * 一个快照的长度只由数据板尺寸决定（10 × 22 的数据板为 41 + 44 + 110 字节），
+ * 因此可以在文件中按下标随机读写。格式（小端序）：
+ * <ul>
+ * <li>版本号（1字节）、宽度、高度（各2字节）</li>
+ * <li>消除的行数、得分（各4字节）</li>
+ * <li>方块序列的随机方式序号（1字节）、种子、已取出的方块个数（各8字节）</li>
+ * <li>当前方块类型序号+1（1字节，0为没有方块）、旋转角度序号（1字节）、是否已固定（1字节）、原点x、y坐标（各4字节）</li>
+ * <li>行位掩码： 从下往上每行 ⌈宽度/8⌉ 字节</li>
+ * <li>颜色平面： 每个方格4位（方块类型序号+1），两个方格一字节</li>
+ * </ul>
+ * 恢复时方块序列生成器按种子重新产生序列并跳过已取出的方块，恢复后的对局继续原来的方块序列（同样的种子、同样的随机方式）。
+ * <p>
+ * 解码时检查所有字段的范围，损坏的快照抛出{@link IllegalArgumentException}。
+ */
+public final class BoardCodec {
+    private static final byte VERSION = 2;
+    // 快照头的长度
+    static final int HEADER_SIZE = 1 + 2 + 2 + 4 + 4 + 1 + 8 + 8 + 1 + 1 + 1 + 4 + 4;
+
+    private static final Tetrominoes[] TETROMINOES = Tetrominoes.values();
+    private static final RotationDegree[] DEGREES = RotationDegree.values();
+    private static final Randomizer[] RANDOMIZERS = Randomizer.values();
+    // 方块序列位置的上限： 恢复时要重新产生已取出的方块，损坏的快照不能导致长时间的恢复（一局不可能取出这么多方块）
+    private static final long MAX_POSITION = 1L << 24;
+
+    private BoardCodec() {
+    }
+
+    /**
+     * 指定尺寸的数据板的快照长度（字节）。
+     */
+    public static int encodedSize(final int boardWidth, final int boardHight) {
+        return HEADER_SIZE + (bytesPerRow(boardWidth) * boardHight) + (((boardWidth * boardHight) + 1) / 2);
+    }
+
+    /**
+     * 数据板的快照长度（字节）。
+     */
+    public static int encodedSize(final Board board) {
+        return encodedSize(board.getBoardWidth(), board.getBoardHight());
+    }
+
+    /**
+     * 把数据板的快照写入缓冲区的当前位置。
+     *
+     * @param board
+     *            数据板
+     * @param buffer
+     *            缓冲区，剩余空间至少为{@link #encodedSize(Board)}
+     */
+    public static void encode(final Board board, final ByteBuffer buffer) {
+        final ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        final int boardWidth = board.getBoardWidth();
+        final int boardHight = board.getBoardHight();
+        buffer.put(VERSION);
+        buffer.putShort((short) boardWidth);
+        buffer.putShort((short) boardHight);
+        buffer.putInt(board.getLinesOfCleared());
+        buffer.putInt(board.getScores());
+
+        final PieceGenerator pieceGenerator = board.getPieceGenerator();
+        buffer.put((byte) pieceGenerator.getRandomizer().ordinal());
+        buffer.putLong(pieceGenerator.getSeed());
+        buffer.putLong(pieceGenerator.getPosition());
+
+        final Shape shape = board.getCurShape();
+        if (shape == null) {
+            buffer.put((byte) 0).put((byte) 0).put((byte) 0).putInt(0).putInt(0);
+        } else {
+            buffer.put((byte) (shape.getTetrominoes().ordinal() + 1));
+            buffer.put((byte) shape.getRotationDegree().ordinal());
+            buffer.put((byte) (board.isCurShapeLocked() ? 1 : 0));
+            buffer.putInt(shape.getCurCoords().getX());
+            buffer.putInt(shape.getCurCoords().getY());
+        }
+
+        // 行位掩码
+        final long[] rows = board.getRows();
+        final int bytesPerRow = bytesPerRow(boardWidth);
+        for (int y = 0; y < boardHight; y++) {
+            long row = rows[y];
+            for (int i = 0; i < bytesPerRow; i++) {
+                buffer.put((byte) row);
+                row >>>= 8;
+            }
+        }
+
+        // 颜色平面，两个方格一字节
+        final byte[] colors = board.getColors();
+        final int last = colors.length - 1;
+        for (int i = 0; i < last; i += 2) {
+            buffer.put((byte) (colors[i] | (colors[i + 1] << 4)));
+        }
+        if ((colors.length & 1) != 0) {
+            buffer.put(colors[last]);
+        }
+
+        buffer.order(order);
+    }
+
+    /**
+     * 从缓冲区的当前位置读取快照，恢复到同样尺寸的数据板中。
+     *
+     * @param buffer
+     *            缓冲区
+     * @param board
+     *            被恢复的数据板
+     * @throws IllegalArgumentException
+     *             快照版本不支持、尺寸或随机方式与数据板不一致、快照不完整或字段超出范围（快照损坏），此时数据板的内容不确定
+     */
+    public static void decode(final ByteBuffer buffer, final Board board) {
+        final int start = buffer.position();
+        final ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        try {
+            final byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("不支持的快照版本: " + version);
+            }
+            final int boardWidth = buffer.getShort();
+            final int boardHight = buffer.getShort();
+            if ((boardWidth != board.getBoardWidth()) || (boardHight != board.getBoardHight())) {
+                throw new IllegalArgumentException("快照尺寸 " + boardWidth + " x " + boardHight + " 与数据板不一致");
+            }
+            if ((buffer.limit() - start) < encodedSize(boardWidth, boardHight)) {
+                throw new IllegalArgumentException("快照不完整: " + (buffer.limit() - start) + " 字节");
+            }
+
+            final int linesOfCleared = buffer.getInt();
+            final int scores = buffer.getInt();
+
+            final Randomizer randomizer = readRandomizer(buffer);
+            final long seed = buffer.getLong();
+            final long position = buffer.getLong();
+            final PieceGenerator pieceGenerator = board.getPieceGenerator();
+            if (pieceGenerator.getRandomizer() != randomizer) {
+                throw new IllegalArgumentException(
+                        "快照的随机方式 " + randomizer + " 与数据板的方块序列生成器不一致: " + pieceGenerator.getRandomizer());
+            }
+            if ((position < 0) || (position > MAX_POSITION)) {
+                throw new IllegalArgumentException("快照的方块序列位置超出范围: " + position);
+            }
+
+            final int tetrominoesIndex = buffer.get() & 0xFF;
+            final int degreeIndex = buffer.get() & 0xFF;
+            final boolean shapeLocked = buffer.get() != 0;
+            final int x = buffer.getInt();
+            final int y = buffer.getInt();
+            final Shape shape = createShape(tetrominoesIndex, degreeIndex, x, y, boardWidth, boardHight);
+
+            final long[] rows = board.getRows();
+            final int bytesPerRow = bytesPerRow(boardWidth);
+            final long rowMask = (boardWidth == Long.SIZE) ? -1L : ((1L << boardWidth) - 1);
+            for (int row = 0; row < boardHight; row++) {
+                long bits = 0;
+                for (int i = 0; i < bytesPerRow; i++) {
+                    bits |= (buffer.get() & 0xFFL) << (i * 8);
+                }
+                if ((bits & ~rowMask) != 0) {
+                    throw new IllegalArgumentException("快照第" + row + "行的位掩码超出宽度");
+                }
+                rows[row] = bits;
+            }
+
+            final byte[] colors = board.getColors();
+            final int last = colors.length - 1;
+            for (int i = 0; i < last; i += 2) {
+                final int packed = buffer.get() & 0xFF;
+                colors[i] = checkColor(packed & 0x0F);
+                colors[i + 1] = checkColor(packed >>> 4);
+            }
+            if ((colors.length & 1) != 0) {
+                colors[last] = checkColor(buffer.get() & 0xFF);
+            }
+
+            pieceGenerator.reset(seed, position);
+            board.restore(shape, shapeLocked, linesOfCleared, scores);
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    /**
+     * 从缓冲区的当前位置读取快照，创建一个新的数据板（方块序列生成器按快照中的随机方式和种子创建）。
+     *
+     * @throws IllegalArgumentException
+     *             快照版本不支持，快照不完整或字段超出范围（快照损坏）
+     */
+    public static Board decode(final ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            throw new IllegalArgumentException("快照不完整: " + buffer.remaining() + " 字节");
+        }
+        final int position = buffer.position();
+        final ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        final int boardWidth;
+        final int boardHight;
+        final Randomizer randomizer;
+        final long seed;
+        try {
+            if (buffer.get(position) != VERSION) {
+                throw new IllegalArgumentException("不支持的快照版本: " + buffer.get(position));
+            }
+            boardWidth = buffer.getShort(position + 1);
+            boardHight = buffer.getShort(position + 3);
+            buffer.position(position + 13);
+            randomizer = readRandomizer(buffer);
+            seed = buffer.getLong();
+        } finally {
+            buffer.position(position);
+            buffer.order(order);
+        }
+
+        final Board board = new Board(boardWidth, boardHight, randomizer.create(seed));
+        decode(buffer, board);
+        return board;
+    }
+
+    private static Randomizer readRandomizer(final ByteBuffer buffer) {
+        final int index = buffer.get() & 0xFF;
+        if (index >= RANDOMIZERS.length) {
+            throw new IllegalArgumentException("快照的随机方式序号超出范围: " + index);
+        }
+        return RANDOMIZERS[index];
+    }
+
+    /**
+     * 按快照中的字段创建当前方块，检查类型和角度的序号，以及方块是否在数据板内（最高可以在新方块出现的位置）。
+     *
+     * @return 当前方块，类型序号为0（没有方块）时返回null
+     */
+    private static Shape createShape(final int tetrominoesIndex, final int degreeIndex, final int x, final int y,
+            final int boardWidth, final int boardHight) {
+        if (tetrominoesIndex > TETROMINOES.length) {
+            throw new IllegalArgumentException("快照的方块类型序号超出范围: " + tetrominoesIndex);
+        }
+        if (degreeIndex >= DEGREES.length) {
+            throw new IllegalArgumentException("快照的旋转角度序号超出范围: " + degreeIndex);
+        }
+        if (tetrominoesIndex == 0) {
+            return null;
+        }
+
+        final Tetrominoes tetrominoes = TETROMINOES[tetrominoesIndex - 1];
+        final RotationDegree degree = DEGREES[degreeIndex];
+        final ShapeTable shapeTable = ShapeTable.of(tetrominoes, degree);
+        if ((x < shapeTable.getMinX()) || (x > shapeTable.getMaxX(boardWidth)) || ((y + shapeTable.getMinDy()) < 0)
+                || (y >= boardHight)) {
+            throw new IllegalArgumentException("快照的当前方块位置超出数据板: (" + x + ", " + y + ")");
+        }
+        return new Shape(tetrominoes, degree, x, y);
+    }
+
+    /**
+     * 检查颜色平面中的值（方块类型序号+1，0表示空）。
+     */
+    private static byte checkColor(final int color) {
+        if (color > TETROMINOES.length) {
+            throw new IllegalArgumentException("快照的方格颜色超出范围: " + color);
+        }
+        return (byte) color;
+    }
+
+    private static int bytesPerRow(final int boardWidth) {
+        return (boardWidth + 7) / 8;
+    }
+}
@@ -0,0 +1,52 @@
+package javagame.tetrominoes.data;
+
+/**
+ * 数据板局面特征的只读视图，供局面评估使用。
+ * <p>
+ * 特征只统计已固定的方格（不包括当前正在动作的方块），由数据板在方块固定、消行、设置方格时增量维护，读取都是常数时间。
+ */
+public interface BoardFeatures {
+    int getBoardWidth();
+
+    int getBoardHight();
+
+    /**
+     * 一列的表面高度（已固定方格中最高的y坐标+1，空列为0）。
+     */
+    int getColumnHeight(int x);
+
+    /**
+     * 各列表面高度之和。
+     */
+    int getAggregateHeight();
+
+    /**
+     * 空洞数： 表面以下的空方格总数。
+     */
+    int getHoles();
+
+    /**
+     * 一列表面以下的空方格数。
+     */
+    int getColumnHoles(int x);
+
+    /**
+     * 相邻列表面高度差的绝对值之和。
+     */
+    int getBumpiness();
+
+    /**
+     * 一列的井深： 两侧中较低一侧比该列高出的格数（边界视为与数据板同高），不是井时为0。
+     */
+    int getWellDepth(int x);
+
+    /**
+     * 各列井深之和。
+     */
+    int getWellDepthSum();
+
+    /**
+     * 已固定方格的Zobrist哈希值： 占用情况相同的局面哈希值相同（与颜色、当前方块、统计数据无关），可以作为缓存评估结果的键。
+     */
+    long getZobristHash();
+}
@@ -0,0 +1,161 @@
+package javagame.tetrominoes.data;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 批量保存/读取数据板快照的文件，通过内存映射直接读写，用于定期给所有正在进行的对局做检查点。
+ * <p>
+ * 文件头（{@value #FILE_HEADER_SIZE}字节，小端序）： 魔数"TTSN"、版本号、快照个数、宽度、高度、每个快照的长度；
+ * 之后是等长的{@link BoardCodec}快照。文件中的数据板尺寸必须相同。保存时先写临时文件再替换，检查点不会只写一半。
+ * <p>
+ * 快照中含有各局方块序列的种子和位置，恢复的对局继续原来的方块序列。
+ */
+public final class BoardSnapshotFile {
+    private static final int MAGIC = 0x4E535454;
+    private static final byte VERSION = 2;
+    private static final int FILE_HEADER_SIZE = 32;
+    // 每次映射的最大长度
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+    private BoardSnapshotFile() {
+    }
+
+    /**
+     * 保存一组数据板的快照。
+     *
+     * @param file
+     *            文件
+     * @param boards
+     *            数据板，尺寸必须相同
+     */
+    public static void save(final Path file, final List<Board> boards) throws IOException {
+        save(file, boards.toArray(new Board[boards.size()]));
+    }
+
+    /**
+     * 保存一组数据板的快照。
+     *
+     * @param file
+     *            文件
+     * @param boards
+     *            数据板，尺寸必须相同
+     */
+    public static void save(final Path file, final Board... boards) throws IOException {
+        final int boardWidth = (boards.length == 0) ? 0 : boards[0].getBoardWidth();
+        final int boardHight = (boards.length == 0) ? 0 : boards[0].getBoardHight();
+        for (final Board board : boards) {
+            if ((board.getBoardWidth() != boardWidth) || (board.getBoardHight() != boardHight)) {
+                throw new IllegalArgumentException("数据板尺寸不一致");
+            }
+        }
+
+        final int recordSize = (boards.length == 0) ? 0 : BoardCodec.encodedSize(boardWidth, boardHight);
+        final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final MappedByteBuffer header = channel.map(MapMode.READ_WRITE, 0, FILE_HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).put(VERSION).putInt(boards.length).putShort((short) boardWidth)
+                    .putShort((short) boardHight).putInt(recordSize);
+
+            final int recordsPerSegment = recordsPerSegment(recordSize);
+            for (int first = 0; first < boards.length; first += recordsPerSegment) {
+                final int count = Math.min(recordsPerSegment, boards.length - first);
+                final MappedByteBuffer segment = channel.map(MapMode.READ_WRITE,
+                        FILE_HEADER_SIZE + ((long) first * recordSize), (long) count * recordSize);
+                for (int i = 0; i < count; i++) {
+                    BoardCodec.encode(boards[first + i], segment);
+                }
+            }
+            channel.force(false);
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取文件中的全部快照，每个快照创建一个新的数据板（方块序列生成器按快照中的随机方式和种子创建）。
+     */
+    public static Board[] load(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer header = readHeader(channel, file);
+            final Board[] boards = new Board[header.getInt(5)];
+            readRecords(channel, header, boards);
+            return boards;
+        }
+    }
+
+    /**
+     * 把文件中的快照依次恢复到已有的数据板中（不创建新的数据板）。
+     *
+     * @param file
+     *            文件
+     * @param boards
+     *            被恢复的数据板，个数、尺寸、方块序列的随机方式必须与文件一致
+     */
+    public static void load(final Path file, final Board[] boards) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer header = readHeader(channel, file);
+            if (header.getInt(5) != boards.length) {
+                throw new IllegalArgumentException("快照个数 " + header.getInt(5) + " 与数据板个数不一致");
+            }
+            readRecords(channel, header, boards);
+        }
+    }
+
+    private static MappedByteBuffer readHeader(final FileChannel channel, final Path file) throws IOException {
+        if (channel.size() < FILE_HEADER_SIZE) {
+            throw new IOException("不是快照文件: " + file);
+        }
+
+        final MappedByteBuffer header = channel.map(MapMode.READ_ONLY, 0, FILE_HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if ((header.getInt(0) != MAGIC) || (header.get(4) != VERSION)) {
+            throw new IOException("不是快照文件: " + file);
+        }
+        final int count = header.getInt(5);
+        final int recordSize = header.getInt(13);
+        final int expectedRecordSize = BoardCodec.encodedSize(header.getShort(9), header.getShort(11));
+        if ((count < 0) || ((count > 0) && (recordSize != expectedRecordSize))) {
+            throw new IOException("快照文件的记录长度与数据板尺寸不一致: " + file);
+        }
+        final long expectedSize = FILE_HEADER_SIZE + ((long) count * recordSize);
+        if (channel.size() < expectedSize) {
+            throw new IOException("快照文件不完整: " + file);
+        }
+        return header;
+    }
+
+    /**
+     * 依次读取快照，数组中为null的位置创建新的数据板。
+     */
+    private static void readRecords(final FileChannel channel, final MappedByteBuffer header, final Board[] boards)
+            throws IOException {
+        final int recordSize = header.getInt(13);
+        final int recordsPerSegment = recordsPerSegment(recordSize);
+        for (int first = 0; first < boards.length; first += recordsPerSegment) {
+            final int count = Math.min(recordsPerSegment, boards.length - first);
+            final MappedByteBuffer segment = channel.map(MapMode.READ_ONLY,
+                    FILE_HEADER_SIZE + ((long) first * recordSize), (long) count * recordSize);
+            for (int i = 0; i < count; i++) {
+                if (boards[first + i] == null) {
+                    boards[first + i] = BoardCodec.decode(segment);
+                } else {
+                    BoardCodec.decode(segment, boards[first + i]);
+                }
+            }
+        }
+    }
+
+    private static int recordsPerSegment(final int recordSize) {
+        return (recordSize == 0) ? Integer.MAX_VALUE : (int) Math.max(1, MAX_SEGMENT_SIZE / recordSize);
+    }
+}
@@ -1,12 +1,9 @@
 package javagame.tetrominoes.data;
 
-import java.io.Serializable;
-
 /**
  * 坐标，(x, y) 表示。
  */
-public class Coords implements Serializable {
-    private static final long serialVersionUID = -4221204629878638945L;
+public class Coords {
 
     private int x;
     private int y;
@@ -0,0 +1,491 @@
+package javagame.tetrominoes.data;
+
+import java.util.Arrays;
+
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDirection;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 超大尺寸的数据板（数千列、数万行），用于压力测试和马拉松模式。
+ * <p>
+ * 每行是多个long组成的位集（第x列在第 x / 64 个字的第 x % 64 位），空行不分配存储（为null），颜色也按行分配，
+ * 内存只随有方格的行数增长。每行另存已占用的方格数，方块固定时按行掩码的位数累加，满行判断为一次比较；
+ * 消行只移动行的引用，不复制行的内容。
+ * <p>
+ * 操作方式与{@link Board}相同（产生方块、移动、快速下落、消行），但只提供模拟需要的部分；宽度不超过64时应使用{@link Board}。
+ * 数据板不是线程安全的。
+ */
+public class LargeBoard {
+    // 每行位集中一个字的位数
+    private static final int WORD_BITS = Long.SIZE;
+    private static final int WORD_SHIFT = 6;
+
+    // 方块类型数组缓存（Tetrominoes.values()每次调用都会复制数组）
+    private static final Tetrominoes[] TETROMINOES = Tetrominoes.values();
+
+    // 宽度（几个方格）
+    private final int boardWidth;
+    // 高度（几个方格）
+    private final int boardHight;
+    // 每行的字数
+    private final int wordsPerRow;
+
+    // 新方块出现的初始位置
+    private final Coords initialCoords;
+
+    // 方块序列生成器
+    private final PieceGenerator pieceGenerator;
+
+    // 行位集数组，下标为y，空行为null
+    private final long[][] rows;
+    // 每行的颜色（方块类型序号+1，0表示空），下标为y，空行为null
+    private final byte[][] rowColors;
+    // 每行已占用的方格数
+    private final int[] rowCounts;
+    // 每列的表面高度： 该列最高的已占用方格的y坐标+1，空列为0
+    private final int[] heights;
+    // 最高的非空行的y坐标+1，上方都是空行
+    private int top;
+    // 已分配存储的行数
+    private int allocatedRows;
+
+    // 当前正在动作的方块
+    private Shape curShape;
+    // 当前方块是否已经固定到数据板中
+    private boolean curShapeLocked;
+    // 最低的已满行（方块固定或设置方格使行变满时记下），已满的行都不低于它，没有已满的行时为数据板高度
+    private int lowestFullRow;
+    // 消行时被消除的行（从低到高），用于计算每列表面下移的行数；容量不够时加倍
+    private int[] clearedRows = new int[4];
+
+    // 统计数据： 消除的行数
+    private int linesOfCleared;
+    // 统计数据： 得分
+    private int scores;
+
+    public LargeBoard(final int boardWidth, final int boardHight, final PieceGenerator pieceGenerator) {
+        if ((boardWidth <= 0) || (boardHight <= 0)) {
+            throw new IllegalArgumentException("数据板尺寸不合法: " + boardWidth + " x " + boardHight);
+        }
+
+        this.boardWidth = boardWidth;
+        this.boardHight = boardHight;
+        this.pieceGenerator = pieceGenerator;
+        wordsPerRow = (boardWidth + WORD_BITS - 1) >>> WORD_SHIFT;
+        initialCoords = new Coords((boardWidth / 2), boardHight - 1);
+
+        rows = new long[boardHight][];
+        rowColors = new byte[boardHight][];
+        rowCounts = new int[boardHight];
+        heights = new int[boardWidth];
+        clearBoard();
+    }
+
+    public void clearBoard() {
+        linesOfCleared = 0;
+        scores = 0;
+
+        curShape = null;
+        curShapeLocked = false;
+        lowestFullRow = boardHight;
+
+        Arrays.fill(rows, 0, top, null);
+        Arrays.fill(rowColors, 0, top, null);
+        Arrays.fill(rowCounts, 0, top, 0);
+        Arrays.fill(heights, 0);
+        top = 0;
+        allocatedRows = 0;
+    }
+
+    /**
+     * 从方块序列生成器取出下一个方块作为当前方块。
+     */
+    public void newShap() {
+        newShap(pieceGenerator.next());
+    }
+
+    /**
+     * 产生一个指定类型的新方块。
+     *
+     * @param tetrominoes
+     *            方块类型
+     */
+    public void newShap(final Tetrominoes tetrominoes) {
+        curShape = new Shape(initialCoords, tetrominoes);
+        curShapeLocked = false;
+    }
+
+    /**
+     * 设置一个已固定的方格，用于构造指定的局面。使某行变满时，该行在下一次{@link #clearFullLines()}时被消除。
+     *
+     * @param x
+     *            x坐标
+     * @param y
+     *            y坐标
+     * @param tetrominoes
+     *            方格所属的方块类型，null表示清空方格
+     */
+    public void setCell(final int x, final int y, final Tetrominoes tetrominoes) {
+        final boolean occupied = isOccupied(x, y);
+        if (tetrominoes == null) {
+            if (!occupied) {
+                return;
+            }
+
+            rows[y][x >>> WORD_SHIFT] &= ~(1L << x);
+            rowColors[y][x] = 0;
+            if (--rowCounts[y] == 0) {
+                releaseRow(y);
+            }
+            if (heights[x] == (y + 1)) {
+                heights[x] = columnHeightBelow(x, y);
+            }
+            if (top == (y + 1)) {
+                while ((top > 0) && (rows[top - 1] == null)) {
+                    top--;
+                }
+            }
+        } else {
+            final long[] row = allocateRow(y);
+            row[x >>> WORD_SHIFT] |= 1L << x;
+            rowColors[y][x] = (byte) (tetrominoes.ordinal() + 1);
+            if (!occupied && (++rowCounts[y] == boardWidth)) {
+                lowestFullRow = Math.min(lowestFullRow, y);
+            }
+            heights[x] = Math.max(heights[x], y + 1);
+            top = Math.max(top, y + 1);
+        }
+    }
+
+    /**
+     * 尝试移动当前方块。向下移动失败时，当前方块落地并固定到数据板中。
+     *
+     * @param movementDirection
+     *            移动方向
+     * @param rotationDirection
+     *            旋转方向
+     * @return 是否移动成功
+     */
+    public boolean tryToMove(final MovementDirection movementDirection,
+            final RotationDirection rotationDirection) {
+        if ((curShape == null) || curShapeLocked) {
+            return false;
+        }
+
+        final ShapeTable shapeTable = ShapeTable.of(curShape.getTetrominoes(), (rotationDirection == null)
+                ? curShape.getRotationDegree() : curShape.getRotationDegree().rotate(rotationDirection));
+        final Coords curCoords = curShape.getCurCoords();
+        if (!collides(shapeTable, curCoords.getX() + movementDirection.getDx(),
+                curCoords.getY() + movementDirection.getDy())) {
+            curShape.moveAndRotate(movementDirection, rotationDirection);
+
+            if (movementDirection == MovementDirection.Down) {
+                scores = scores + 1;
+            }
+            return true;
+        }
+
+        if (movementDirection == MovementDirection.Down) {
+            lockShape(curShape);
+        }
+        return false;
+    }
+
+    /**
+     * 快速下落： 一次移动到落点并固定，每下落一格得1分（与逐格下落相同）。
+     *
+     * @return 下落的格数，没有当前方块或已固定时返回-1
+     */
+    public int hardDrop() {
+        if ((curShape == null) || curShapeLocked) {
+            return -1;
+        }
+
+        final int distance = curShape.getCurCoords().getY() - getLandingY();
+        if (distance > 0) {
+            curShape.dropBy(distance);
+            scores = scores + distance;
+        }
+        lockShape(curShape);
+        return distance;
+    }
+
+    /**
+     * 当前方块快速下落后原点的y坐标（落点）： 由每列的表面高度和方块的底部轮廓算出，方块在悬空部分的下方时逐行检测碰撞。
+     *
+     * @return 落点的y坐标，没有当前方块或已固定时返回{@link Integer#MIN_VALUE}，方块有列在数据板外时返回当前的y坐标
+     */
+    public int getLandingY() {
+        if ((curShape == null) || curShapeLocked) {
+            return Integer.MIN_VALUE;
+        }
+
+        final ShapeTable shapeTable = curShape.getShapeTable();
+        final int baseX = curShape.getCurCoords().getX();
+        final int baseY = curShape.getCurCoords().getY();
+        if ((baseX < shapeTable.getMinX()) || (baseX > shapeTable.getMaxX(boardWidth))) {
+            // 方块有列在数据板外（窄数据板上新方块出现的位置），与逐格下落一样不能下落
+            return baseY;
+        }
+        final int left = baseX + shapeTable.getMinDx();
+        int landingY = Integer.MIN_VALUE;
+        for (int column = 0; column < shapeTable.getWidth(); column++) {
+            landingY = Math.max(landingY, heights[left + column] - shapeTable.getBottomDy(column));
+        }
+        if (landingY <= baseY) {
+            return landingY;
+        }
+
+        // 在悬空部分的下方，表面高度不适用
+        landingY = baseY;
+        while (!collides(shapeTable, baseX, landingY - 1)) {
+            landingY--;
+        }
+        return landingY;
+    }
+
+    /**
+     * 检查方块放在原点(x, y)时是否与数据板边界或已固定的方格碰撞。空行直接跳过，方块跨两个字时分别检查。
+     */
+    private boolean collides(final ShapeTable shapeTable, final int x, final int y) {
+        final int bottom = y + shapeTable.getMinDy();
+        if ((x < shapeTable.getMinX()) || (x > shapeTable.getMaxX(boardWidth)) || (bottom < 0)
+                || ((y + shapeTable.getMaxDy()) >= boardHight)) {
+            return true;
+        }
+
+        final int shift = x + shapeTable.getMinDx();
+        final int word = shift >>> WORD_SHIFT;
+        final int bit = shift & (WORD_BITS - 1);
+        for (int i = 0; i < shapeTable.getHeight(); i++) {
+            final long[] row = rows[bottom + i];
+            if (row == null) {
+                continue;
+            }
+
+            final long mask = shapeTable.getRowMask(i);
+            if ((row[word] & (mask << bit)) != 0) {
+                return true;
+            }
+            if ((bit != 0) && ((word + 1) < wordsPerRow) && ((row[word + 1] & (mask >>> (WORD_BITS - bit))) != 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把落地的方块固定到行位集中，同时记下因此变满的行。当前位置不合法时不固定。
+     */
+    private void lockShape(final Shape shape) {
+        final ShapeTable shapeTable = shape.getShapeTable();
+        final int baseX = shape.getCurCoords().getX();
+        final int baseY = shape.getCurCoords().getY();
+        if (collides(shapeTable, baseX, baseY)) {
+            return;
+        }
+
+        final int bottom = baseY + shapeTable.getMinDy();
+        final int shift = baseX + shapeTable.getMinDx();
+        final int word = shift >>> WORD_SHIFT;
+        final int bit = shift & (WORD_BITS - 1);
+        for (int i = 0; i < shapeTable.getHeight(); i++) {
+            final int y = bottom + i;
+            final long[] row = allocateRow(y);
+            final long mask = shapeTable.getRowMask(i);
+            row[word] |= mask << bit;
+            if (bit != 0) {
+                final long high = mask >>> (WORD_BITS - bit);
+                if (high != 0) {
+                    row[word + 1] |= high;
+                }
+            }
+
+            rowCounts[y] += Long.bitCount(mask);
+            if ((rowCounts[y] == boardWidth) && (y < lowestFullRow)) {
+                lowestFullRow = y;
+            }
+        }
+
+        final byte color = (byte) (shape.getTetrominoes().ordinal() + 1);
+        for (final Coords coord : shape.getVertexes()) {
+            final int x = coord.getX() + baseX;
+            final int y = coord.getY() + baseY;
+            rowColors[y][x] = color;
+            heights[x] = Math.max(heights[x], y + 1);
+        }
+        top = Math.max(top, bottom + shapeTable.getHeight());
+        curShapeLocked = true;
+    }
+
+    public int clearFullLines() {
+        // 没有满行时不需要扫描，有时从最低的满行开始一次压缩全部消除
+        final int cleardLines = (lowestFullRow < top) ? compactFullRows() : 0;
+
+        linesOfCleared = linesOfCleared + cleardLines;
+        scores = scores + Board.lineClearScore(cleardLines);
+        return cleardLines;
+    }
+
+    /**
+     * 消除所有已满的行： 满行的存储直接释放，上方的行引用整体下移，然后更新每列的表面高度。
+     *
+     * @return 消除的行数
+     */
+    private int compactFullRows() {
+        int write = lowestFullRow;
+        int cleared = 0;
+        for (int read = write; read < top; read++) {
+            if (rowCounts[read] == boardWidth) {
+                rows[read] = null;
+                rowColors[read] = null;
+                allocatedRows--;
+                if (cleared == clearedRows.length) {
+                    clearedRows = Arrays.copyOf(clearedRows, cleared * 2);
+                }
+                clearedRows[cleared++] = read;
+                continue;
+            }
+
+            rows[write] = rows[read];
+            rowColors[write] = rowColors[read];
+            rowCounts[write] = rowCounts[read];
+            write++;
+        }
+
+        Arrays.fill(rows, write, top, null);
+        Arrays.fill(rowColors, write, top, null);
+        Arrays.fill(rowCounts, write, top, 0);
+        top = write;
+
+        // 满行中每列都有方格： 表面不在满行上的列只是下移，否则从下移后的位置向下找新的表面
+        for (int x = 0; x < boardWidth; x++) {
+            final int height = heights[x];
+            if (height > 0) {
+                final int below = clearedRowsBelow(height, cleared);
+                heights[x] = columnHeightBelow(x, height - below);
+            }
+        }
+        lowestFullRow = boardHight;
+        return cleared;
+    }
+
+    /**
+     * 第y行（不含）以下消除的满行数。
+     *
+     * @param cleared
+     *            本次消除的行数（{@link #clearedRows}中有效的项数）
+     */
+    private int clearedRowsBelow(final int y, final int cleared) {
+        final int index = Arrays.binarySearch(clearedRows, 0, cleared, y);
+        return (index >= 0) ? index : -(index + 1);
+    }
+
+    /**
+     * 从第y行（不含）向下找x列第一个已占用的方格，返回新的表面高度。
+     */
+    private int columnHeightBelow(final int x, final int y) {
+        int height = y;
+        while ((height > 0) && !isOccupied(x, height - 1)) {
+            height--;
+        }
+        return height;
+    }
+
+    /**
+     * 第y行的位集，空行时分配存储。
+     */
+    private long[] allocateRow(final int y) {
+        long[] row = rows[y];
+        if (row == null) {
+            row = new long[wordsPerRow];
+            rows[y] = row;
+            rowColors[y] = new byte[boardWidth];
+            allocatedRows++;
+        }
+        return row;
+    }
+
+    /**
+     * 释放已经变空的第y行的存储。
+     */
+    private void releaseRow(final int y) {
+        rows[y] = null;
+        rowColors[y] = null;
+        allocatedRows--;
+    }
+
+    /**
+     * 方格是否已被固定的方块占用（不包括当前正在动作的方块）。
+     */
+    public boolean isOccupied(final int x, final int y) {
+        final long[] row = rows[y];
+        return (row != null) && ((row[x >>> WORD_SHIFT] & (1L << x)) != 0);
+    }
+
+    /**
+     * 获取已固定的方格所属的方块类型（不包括当前正在动作的方块）。
+     *
+     * @return 方块类型，空方格返回null
+     */
+    public Tetrominoes getTetrominoes(final int x, final int y) {
+        final byte[] colors = rowColors[y];
+        return ((colors == null) || (colors[x] == 0)) ? null : TETROMINOES[colors[x] - 1];
+    }
+
+    /**
+     * 一行已占用的方格数。
+     */
+    public int getRowCount(final int y) {
+        return rowCounts[y];
+    }
+
+    /**
+     * 获取一列的表面高度（已固定方格中最高的y坐标+1，空列为0）。
+     */
+    public int getColumnHeight(final int x) {
+        return heights[x];
+    }
+
+    /**
+     * 最高的非空行的y坐标+1。
+     */
+    public int getTop() {
+        return top;
+    }
+
+    /**
+     * 已分配存储的（非空）行数。
+     */
+    public int getAllocatedRows() {
+        return allocatedRows;
+    }
+
+    /**
+     * 获取当前正在动作的方块。
+     */
+    public Shape getCurShape() {
+        return curShape;
+    }
+
+    public PieceGenerator getPieceGenerator() {
+        return pieceGenerator;
+    }
+
+    public int getBoardWidth() {
+        return boardWidth;
+    }
+
+    public int getBoardHight() {
+        return boardHight;
+    }
+
+    public int getLinesOfCleared() {
+        return linesOfCleared;
+    }
+
+    public int getScores() {
+        return scores;
+    }
+}
@@ -0,0 +1,64 @@
+package javagame.tetrominoes.data;
+
+import javagame.tetrominoes.enums.Randomizer;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 方块序列生成器。由数据板持有（每局游戏一个），相同的种子产生相同的方块序列。
+ */
+public interface PieceGenerator {
+
+    /**
+     * 取出下一个方块。
+     *
+     * @return 方块类型
+     */
+    Tetrominoes next();
+
+    /**
+     * 预览后续的方块，不取出。
+     *
+     * @param index
+     *            0为下一个方块，不能超过{@link #getPreviewSize()} - 1
+     * @return 方块类型
+     */
+    Tetrominoes peek(int index);
+
+    /**
+     * 可预览的方块个数。
+     */
+    int getPreviewSize();
+
+    /**
+     * 用新的种子重新开始序列。
+     *
+     * @param seed
+     *            种子
+     */
+    void reset(long seed);
+
+    /**
+     * 用种子重新开始序列，并跳过已取出的方块，恢复到序列中的指定位置（用于从快照恢复）。
+     *
+     * @param seed
+     *            种子
+     * @param position
+     *            已取出的方块个数
+     */
+    void reset(long seed, long position);
+
+    /**
+     * 当前序列中已取出的方块个数。
+     */
+    long getPosition();
+
+    /**
+     * 当前序列的种子。
+     */
+    long getSeed();
+
+    /**
+     * 随机方式，和种子一起可以重新创建相同的生成器。
+     */
+    Randomizer getRandomizer();
+}
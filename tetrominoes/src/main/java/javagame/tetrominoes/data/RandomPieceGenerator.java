@@ -0,0 +1,28 @@
+package javagame.tetrominoes.data;
+
+import javagame.tetrominoes.enums.Randomizer;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 均匀随机的方块序列： 每个方块独立地从7种中随机选一种。
+ */
+public class RandomPieceGenerator extends AbstractPieceGenerator {
+
+    public RandomPieceGenerator(final long seed) {
+        this(seed, DEFAULT_PREVIEW_SIZE);
+    }
+
+    public RandomPieceGenerator(final long seed, final int previewSize) {
+        super(previewSize);
+        reset(seed);
+    }
+
+    public Randomizer getRandomizer() {
+        return Randomizer.Uniform;
+    }
+
+    @Override
+    protected Tetrominoes generate() {
+        return TETROMINOES[nextInt(TETROMINOES.length)];
+    }
+}
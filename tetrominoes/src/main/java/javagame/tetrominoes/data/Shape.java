@@ -1,23 +1,18 @@
 package javagame.tetrominoes.data;
 
 import java.awt.Color;
-import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
 
+import javagame.tetrominoes.enums.LogEvent;
 import javagame.tetrominoes.enums.MovementDirection;
 import javagame.tetrominoes.enums.RotationDegree;
 import javagame.tetrominoes.enums.RotationDirection;
 import javagame.tetrominoes.enums.Tetrominoes;
+import javagame.tetrominoes.log.EventLog;
 
 /**
  * 一个方块（形状）的数据实体。
  */
-public class Shape implements Serializable {
-    private static final long serialVersionUID = -2648641437993769489L;
+public class Shape {
 
     // 使用的方式形状
     private final Tetrominoes tetrominoes;
@@ -32,17 +27,57 @@ public class Shape implements Serializable {
     private Coords[] preVertexes;
 
     public Shape(final Coords initialCoords) {
+        this(initialCoords, Tetrominoes.buidRandomTetrominoes());
+    }
+
+    public Shape(final Coords initialCoords, final Tetrominoes tetrominoes) {
         preCoords = new Coords().copyFrom(initialCoords);
         curCoords = new Coords().copyFrom(initialCoords);
 
-        tetrominoes = Tetrominoes.buidRandomTetrominoes();
+        this.tetrominoes = tetrominoes;
         preVertexes = getVertexes();
 
         // 根据图形形状，调整当前坐标
         curCoords.moveY(-tetrominoes.getInitialMaxY());
         preCoords.copyFrom(curCoords);
 
-        logShap();
+        if (EventLog.DEBUG_ENABLED) {
+            EventLog.log(LogEvent.ShapeSpawned, tetrominoes.ordinal(), curCoords.getX(), curCoords.getY());
+        }
+    }
+
+    /**
+     * 复制一个方块（位置、角度都相同），用于在数据板副本上模拟。
+     *
+     * @param other
+     *            被复制的方块
+     */
+    public Shape(final Shape other) {
+        tetrominoes = other.tetrominoes;
+        curCoords = new Coords().copyFrom(other.curCoords);
+        preCoords = new Coords().copyFrom(other.preCoords);
+        rotationDegree = other.rotationDegree;
+        preVertexes = other.preVertexes;
+    }
+
+    /**
+     * 按快照恢复一个方块（不产生日志事件）。
+     *
+     * @param tetrominoes
+     *            方块类型
+     * @param rotationDegree
+     *            旋转角度
+     * @param x
+     *            原点x坐标
+     * @param y
+     *            原点y坐标
+     */
+    Shape(final Tetrominoes tetrominoes, final RotationDegree rotationDegree, final int x, final int y) {
+        this.tetrominoes = tetrominoes;
+        this.rotationDegree = rotationDegree;
+        curCoords = new Coords(x, y);
+        preCoords = new Coords(x, y);
+        preVertexes = getVertexes();
     }
 
     /**
@@ -53,26 +88,20 @@ public class Shape implements Serializable {
      * @return 移动后坐标
      */
     public Coords computeMovable(final MovementDirection movementDirection) {
-        int dx = 0;
-        int dy = 0;
-        switch (movementDirection) {
-        case Left:
-            dx = -1;
-            break;
-        case Right:
-            dx = 1;
-            break;
-        case Down:
-            dy = -1;
-            break;
-        default:
-            break;
-        }
-
-        final Coords coords = new Coords();
-        coords.copyFrom(curCoords).moveX(dx).moveY(dy);
+        return computeMovable(movementDirection, new Coords());
+    }
 
-        return coords;
+    /**
+     * 计算移动后的原点位置，结果写入调用方提供的坐标对象（不分配新对象）。
+     *
+     * @param movementDirection
+     *            移动方向
+     * @param target
+     *            存放结果的坐标
+     * @return 移动后坐标（即target）
+     */
+    public Coords computeMovable(final MovementDirection movementDirection, final Coords target) {
+        return target.copyFrom(curCoords).moveX(movementDirection.getDx()).moveY(movementDirection.getDy());
     }
 
     /**
@@ -100,44 +129,41 @@ public class Shape implements Serializable {
      * @param rotationDirection
      *            旋转方向
      */
-    public synchronized void moveAndRotate(final MovementDirection movementDirection,
+    public void moveAndRotate(final MovementDirection movementDirection,
             final RotationDirection rotationDirection) {
         // 保留之前的原点位置和顶点坐标
         preCoords.copyFrom(curCoords);
         preVertexes = getVertexes();
 
         // 更新原点位置
-        int dx = 0;
-        int dy = 0;
-        switch (movementDirection) {
-        case Left:
-            dx = -1;
-            break;
-        case Right:
-            dx = 1;
-            break;
-        case Down:
-            dy = -1;
-            break;
-        default:
-            break;
-        }
-        curCoords.moveX(dx).moveY(dy);
+        curCoords.moveX(movementDirection.getDx()).moveY(movementDirection.getDy());
 
-        if ((rotationDirection == null) || (rotationDirection == RotationDirection.NoRotation)) {
-            // 没有旋转时
-            return;
+        if ((rotationDirection != null) && (rotationDirection != RotationDirection.NoRotation)) {
+            // 旋转角度
+            rotationDegree = rotationDegree.rotate(rotationDirection);
         }
 
-        // 旋转角度
-        rotationDegree = rotationDegree.rotate(rotationDirection);
-
-        logShap();
+        if (EventLog.TRACE_ENABLED) {
+            EventLog.log(LogEvent.ShapeMoved, tetrominoes.ordinal(), curCoords.getX(), curCoords.getY(),
+                    rotationDegree.ordinal());
+        }
     }
 
-    private void logShap() {
-        System.out.println("preCoords: " + preCoords + "  curCoords: " + curCoords + "  rotationDegree: "
-                + rotationDegree.name() + "  " + Arrays.toString(getVertexes()));
+    /**
+     * 直接向下移动多格（快速下落），调用方负责保证目标位置合法。
+     *
+     * @param distance
+     *            下落的格数
+     */
+    void dropBy(final int distance) {
+        preCoords.copyFrom(curCoords);
+        preVertexes = getVertexes();
+        curCoords.moveY(-distance);
+
+        if (EventLog.TRACE_ENABLED) {
+            EventLog.log(LogEvent.ShapeMoved, tetrominoes.ordinal(), curCoords.getX(), curCoords.getY(),
+                    rotationDegree.ordinal());
+        }
     }
 
     public Coords[] getVertexes() {
@@ -148,26 +174,30 @@ public class Shape implements Serializable {
         return preVertexes;
     }
 
-    public Integer[] getAllY() {
-        final Coords[] coords = getVertexes();
-        final int baseY = curCoords.getY();
+    /**
+     * 获取方块占用的所有行的y坐标，从上到下排列（方块各行是连续的）。
+     *
+     * @return y坐标数组
+     */
+    public int[] getAllY() {
+        final ShapeTable shapeTable = getShapeTable();
+        final int topY = curCoords.getY() + shapeTable.getMaxDy();
 
-        final Set<Integer> ySet = new HashSet<Integer>();
-        for (final Coords coord : coords) {
-            ySet.add(coord.getY() + baseY);
+        final int[] yArray = new int[shapeTable.getHeight()];
+        for (int i = 0; i < yArray.length; i++) {
+            yArray[i] = topY - i;
         }
-
-        final Integer[] yArray = new Integer[ySet.size()];
-        final ArrayList<Integer> yList = new ArrayList<Integer>(ySet);
-        Collections.sort(yList);
-        Collections.reverse(yList);
-        return yList.toArray(yArray);
+        return yArray;
     }
 
     public Color getColor() {
         return tetrominoes.getColor();
     }
 
+    public Tetrominoes getTetrominoes() {
+        return tetrominoes;
+    }
+
     public Coords getCurCoords() {
         return curCoords;
     }
@@ -175,4 +205,15 @@ public class Shape implements Serializable {
     public Coords getPreCoords() {
         return preCoords;
     }
+
+    public RotationDegree getRotationDegree() {
+        return rotationDegree;
+    }
+
+    /**
+     * 获取当前角度的预计算表。
+     */
+    public ShapeTable getShapeTable() {
+        return ShapeTable.of(tetrominoes, rotationDegree);
+    }
 }
\ No newline at end of file
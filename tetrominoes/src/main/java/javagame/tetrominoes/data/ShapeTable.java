@@ -0,0 +1,277 @@
+package javagame.tetrominoes.data;
+
+import java.nio.LongBuffer;
+
+import javagame.tetrominoes.enums.RotationDegree;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 方块（形状）在某个旋转角度下的预计算表： 行掩码、坐标范围、每列的底部轮廓。
+ * <p>
+ * 7种方块 × 4个角度共28张表，在类初始化时一次性构造，碰撞检测和落点计算直接查表，不再逐个顶点计算坐标。
+ * 表中的偏移都相对于方块原点坐标。
+ */
+public final class ShapeTable {
+    // 所有的预计算表，下标为 [方块类型序号][角度序号]
+    private static final ShapeTable[][] TABLES;
+
+    static {
+        final Tetrominoes[] tetrominoesValues = Tetrominoes.values();
+        final RotationDegree[] degreeValues = RotationDegree.values();
+
+        TABLES = new ShapeTable[tetrominoesValues.length][degreeValues.length];
+        for (final Tetrominoes tetrominoes : tetrominoesValues) {
+            for (final RotationDegree degree : degreeValues) {
+                TABLES[tetrominoes.ordinal()][degree.ordinal()] = new ShapeTable(tetrominoes.getVertexes(degree));
+            }
+        }
+    }
+
+    // 顶点相对原点的最小/最大x偏移
+    private final int minDx;
+    private final int maxDx;
+    // 顶点相对原点的最小/最大y偏移
+    private final int minDy;
+    private final int maxDy;
+
+    // 行掩码，下标为 dy - minDy，第 (dx - minDx) 位为1表示该格有方块
+    private final long[] rowMasks;
+    // 底部轮廓，下标为 dx - minDx，值为该列最低方格的y偏移
+    private final int[] bottomDy;
+
+    private ShapeTable(final Coords[] vertexes) {
+        int minX = vertexes[0].getX();
+        int maxX = minX;
+        int minY = vertexes[0].getY();
+        int maxY = minY;
+        for (final Coords coord : vertexes) {
+            minX = Math.min(minX, coord.getX());
+            maxX = Math.max(maxX, coord.getX());
+            minY = Math.min(minY, coord.getY());
+            maxY = Math.max(maxY, coord.getY());
+        }
+        minDx = minX;
+        maxDx = maxX;
+        minDy = minY;
+        maxDy = maxY;
+
+        rowMasks = new long[(maxY - minY) + 1];
+        bottomDy = new int[(maxX - minX) + 1];
+        for (int i = 0; i < bottomDy.length; i++) {
+            bottomDy[i] = Integer.MAX_VALUE;
+        }
+
+        for (final Coords coord : vertexes) {
+            final int column = coord.getX() - minX;
+            rowMasks[coord.getY() - minY] |= 1L << column;
+            bottomDy[column] = Math.min(bottomDy[column], coord.getY());
+        }
+    }
+
+    /**
+     * 获取方块在指定角度下的预计算表。
+     *
+     * @param tetrominoes
+     *            方块类型
+     * @param degree
+     *            角度
+     * @return 预计算表
+     */
+    public static ShapeTable of(final Tetrominoes tetrominoes, final RotationDegree degree) {
+        return TABLES[tetrominoes.ordinal()][degree.ordinal()];
+    }
+
+    /**
+     * 检查方块放在原点(x, y)时是否与数据板边界或已固定的方格碰撞。
+     *
+     * @param rows
+     *            数据板的行位掩码
+     * @param boardWidth
+     *            数据板宽度
+     * @param x
+     *            原点x坐标
+     * @param y
+     *            原点y坐标
+     * @return 是否碰撞
+     */
+    public boolean collides(final long[] rows, final int boardWidth, final int x, final int y) {
+        if (isOutside(boardWidth, rows.length, x, y)) {
+            return true;
+        }
+
+        final int bottom = y + minDy;
+        final int shift = x + minDx;
+        for (int i = 0; i < rowMasks.length; i++) {
+            if ((rows[bottom + i] & (rowMasks[i] << shift)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 检查方块放在原点(x, y)时是否与数据板边界或已固定的方格碰撞，数据板的行位掩码存放在缓冲区中
+     * （多个数据板共用一个缓冲区时从rowBase开始）。
+     *
+     * @param rows
+     *            行位掩码缓冲区
+     * @param rowBase
+     *            数据板第0行在缓冲区中的下标
+     * @param boardWidth
+     *            数据板宽度
+     * @param boardHight
+     *            数据板高度
+     * @param x
+     *            原点x坐标
+     * @param y
+     *            原点y坐标
+     * @return 是否碰撞
+     */
+    public boolean collides(final LongBuffer rows, final int rowBase, final int boardWidth, final int boardHight,
+            final int x, final int y) {
+        if (isOutside(boardWidth, boardHight, x, y)) {
+            return true;
+        }
+
+        final int bottom = rowBase + y + minDy;
+        final int shift = x + minDx;
+        for (int i = 0; i < rowMasks.length; i++) {
+            if ((rows.get(bottom + i) & (rowMasks[i] << shift)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 方块放在原点(x, y)时是否有方格在数据板外。
+     */
+    private boolean isOutside(final int boardWidth, final int boardHight, final int x, final int y) {
+        return (x < getMinX()) || (x > getMaxX(boardWidth)) || ((y + minDy) < 0) || ((y + maxDy) >= boardHight);
+    }
+
+    /**
+     * 把放在原点(x, y)的方块固定到行位掩码中（调用前已检查不碰撞）。
+     *
+     * @param rows
+     *            数据板的行位掩码
+     * @param fullRowMask
+     *            满行的位掩码
+     * @param x
+     *            原点x坐标
+     * @param y
+     *            原点y坐标
+     * @return 因此变满的最低行，没有变满的行时为数据板高度
+     */
+    public int lock(final long[] rows, final long fullRowMask, final int x, final int y) {
+        final int bottom = y + minDy;
+        final int shift = x + minDx;
+        int lowestFullRow = rows.length;
+        for (int i = rowMasks.length - 1; i >= 0; i--) {
+            rows[bottom + i] |= rowMasks[i] << shift;
+            if (rows[bottom + i] == fullRowMask) {
+                lowestFullRow = bottom + i;
+            }
+        }
+        return lowestFullRow;
+    }
+
+    /**
+     * 把放在原点(x, y)的方块固定到缓冲区中的行位掩码（调用前已检查不碰撞）。
+     *
+     * @param rows
+     *            行位掩码缓冲区
+     * @param rowBase
+     *            数据板第0行在缓冲区中的下标
+     * @param boardHight
+     *            数据板高度
+     * @param fullRowMask
+     *            满行的位掩码
+     * @param x
+     *            原点x坐标
+     * @param y
+     *            原点y坐标
+     * @return 因此变满的最低行（相对数据板第0行），没有变满的行时为数据板高度
+     */
+    public int lock(final LongBuffer rows, final int rowBase, final int boardHight, final long fullRowMask,
+            final int x, final int y) {
+        final int bottom = y + minDy;
+        final int shift = x + minDx;
+        int lowestFullRow = boardHight;
+        for (int i = rowMasks.length - 1; i >= 0; i--) {
+            final long row = rows.get(rowBase + bottom + i) | (rowMasks[i] << shift);
+            rows.put(rowBase + bottom + i, row);
+            if (row == fullRowMask) {
+                lowestFullRow = bottom + i;
+            }
+        }
+        return lowestFullRow;
+    }
+
+    /**
+     * 原点x坐标的最小合法值（方块最左格在第0列）。
+     */
+    public int getMinX() {
+        return -minDx;
+    }
+
+    /**
+     * 原点x坐标的最大合法值（方块最右格在最后一列）。
+     *
+     * @param boardWidth
+     *            数据板宽度
+     */
+    public int getMaxX(final int boardWidth) {
+        return boardWidth - 1 - maxDx;
+    }
+
+    public int getMinDx() {
+        return minDx;
+    }
+
+    public int getMaxDx() {
+        return maxDx;
+    }
+
+    public int getMinDy() {
+        return minDy;
+    }
+
+    public int getMaxDy() {
+        return maxDy;
+    }
+
+    /**
+     * 方块占用的列数。
+     */
+    public int getWidth() {
+        return bottomDy.length;
+    }
+
+    /**
+     * 方块占用的行数。
+     */
+    public int getHeight() {
+        return rowMasks.length;
+    }
+
+    /**
+     * 获取行掩码（未平移，最左格为第0位）。
+     *
+     * @param row
+     *            行序号（0为方块最低行）
+     */
+    public long getRowMask(final int row) {
+        return rowMasks[row];
+    }
+
+    /**
+     * 获取底部轮廓： 某列最低方格的y偏移。
+     *
+     * @param column
+     *            列序号（0为方块最左列）
+     */
+    public int getBottomDy(final int column) {
+        return bottomDy[column];
+    }
+}
@@ -0,0 +1,128 @@
+package javagame.tetrominoes.engine;
+
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.data.Coords;
+import javagame.tetrominoes.data.Shape;
+import javagame.tetrominoes.enums.GameState;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 不可变的游戏画面快照： 全部方格（包括当前方块和它的落点预览）、统计数据和游戏状态。
+ * <p>
+ * 由游戏循环线程在数据板变化后生成并发布，绘制和状态栏只读快照，不接触正在被修改的数据板，不需要加锁，也不会读到移动了一半的画面。
+ */
+public final class BoardSnapshot {
+    /**
+     * 落点预览方格的标志位，与方块类型序号+1组合。
+     */
+    public static final int GHOST = 0x10;
+
+    private static final Tetrominoes[] TETROMINOES = Tetrominoes.values();
+
+    // 引擎的版本号，见GameEngine.getVersion()
+    private final long version;
+    private final int boardWidth;
+    private final int boardHight;
+    // 方格，下标为 y * boardWidth + x，值为方块类型序号+1，0表示空，落点预览为 GHOST | (方块类型序号+1)
+    private final byte[] cells;
+
+    private final int linesOfCleared;
+    private final int scores;
+    private final int level;
+    private final GameState gameState;
+
+    private BoardSnapshot(final GameEngine engine) {
+        final Board board = engine.getBoard();
+        version = engine.getVersion();
+        boardWidth = board.getBoardWidth();
+        boardHight = board.getBoardHight();
+        cells = new byte[boardWidth * boardHight];
+        board.copyCells(cells);
+        addGhost(board);
+
+        linesOfCleared = board.getLinesOfCleared();
+        scores = board.getScores();
+        level = engine.getLevel();
+        gameState = engine.getGameState();
+    }
+
+    /**
+     * 在当前方块的落点画上预览（只画在空方格上，不遮挡方块本身）。
+     */
+    private void addGhost(final Board board) {
+        final Shape shape = board.getCurShape();
+        final int landingY = board.getLandingY();
+        if ((shape == null) || (landingY == Integer.MIN_VALUE) || (landingY == shape.getCurCoords().getY())) {
+            return;
+        }
+
+        final int baseX = shape.getCurCoords().getX();
+        final byte ghost = (byte) (GHOST | (shape.getTetrominoes().ordinal() + 1));
+        for (final Coords coord : shape.getVertexes()) {
+            final int x = coord.getX() + baseX;
+            final int y = coord.getY() + landingY;
+            final int index = (y * boardWidth) + x;
+            if ((y < boardHight) && (cells[index] == 0)) {
+                cells[index] = ghost;
+            }
+        }
+    }
+
+    /**
+     * 生成引擎当前状态的快照（只能在引擎所在的线程中调用）。
+     */
+    public static BoardSnapshot capture(final GameEngine engine) {
+        return new BoardSnapshot(engine);
+    }
+
+    /**
+     * 方格的值： 方块类型序号+1，0表示空，落点预览带{@link #GHOST}标志。
+     */
+    public int getCell(final int x, final int y) {
+        return cells[(y * boardWidth) + x];
+    }
+
+    /**
+     * 方格所属的方块类型，空方格和落点预览返回null。
+     */
+    public Tetrominoes getTetrominoes(final int x, final int y) {
+        final int cell = cells[(y * boardWidth) + x];
+        return ((cell == 0) || ((cell & GHOST) != 0)) ? null : TETROMINOES[cell - 1];
+    }
+
+    /**
+     * 落点预览方格对应的方块类型，不是落点预览时返回null。
+     */
+    public Tetrominoes getGhostTetrominoes(final int x, final int y) {
+        final int cell = cells[(y * boardWidth) + x];
+        return ((cell & GHOST) == 0) ? null : TETROMINOES[(cell & ~GHOST) - 1];
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getBoardWidth() {
+        return boardWidth;
+    }
+
+    public int getBoardHight() {
+        return boardHight;
+    }
+
+    public int getLinesOfCleared() {
+        return linesOfCleared;
+    }
+
+    public int getScores() {
+        return scores;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public GameState getGameState() {
+        return gameState;
+    }
+}
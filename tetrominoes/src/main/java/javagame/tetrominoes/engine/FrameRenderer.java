@@ -0,0 +1,15 @@
+package javagame.tetrominoes.engine;
+
+/**
+ * 画面绘制接口，由游戏循环线程在每一帧调用（主动绘制）。
+ */
+public interface FrameRenderer {
+
+    /**
+     * 绘制一帧。
+     *
+     * @param snapshot
+     *            最近发布的画面快照
+     */
+    void renderFrame(BoardSnapshot snapshot);
+}
@@ -0,0 +1,304 @@
+package javagame.tetrominoes.engine;
+
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.enums.GameState;
+import javagame.tetrominoes.enums.LogEvent;
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDirection;
+import javagame.tetrominoes.log.EventLog;
+
+/**
+ * 俄罗斯方块游戏引擎，负责下落、落地、消行、产生新方块、游戏结束判定等全部游戏流程。
+ * <p>
+ * 引擎不依赖AWT/Swing，也不自己计时：由调用方驱动{@link #tick()}（界面用定时器，无界面模拟可以直接循环调用）。
+ * 引擎不是线程安全的，需要在同一个线程中调用。
+ */
+public class GameEngine {
+    // 每消除多少行升一级
+    private static final int LINES_PER_LEVEL = 10;
+
+    // 方块控制区的数据板
+    private final Board board;
+
+    // 游戏状态
+    private GameState gameState = GameState.Stopped;
+    // 事件侦听者（视图）
+    private GameListener gameListener;
+    // 对局记录
+    private GameRecorder gameRecorder;
+    // 是否正在记录一局
+    private boolean recording;
+
+    // 已执行的下落节拍数
+    private long ticks;
+    // 累计（不随开局清零）的成功移动次数（包括重力下落）和消除行数，用于统计速率
+    private long totalMoves;
+    private long totalLines;
+    // 版本号： 数据板或游戏状态每变化一次加1，用于判断是否需要发布新的快照
+    private long version;
+
+    public GameEngine() {
+        this(new Board());
+    }
+
+    public GameEngine(final Board board) {
+        this.board = board;
+    }
+
+    /**
+     * 启动： 清空控制区，产生一个新方块，设置运行状态。有对局记录时用新的种子重新开始方块序列，保证可以重现。
+     */
+    public void start() {
+        if (gameRecorder != null) {
+            start(System.nanoTime());
+        } else {
+            startGame();
+        }
+    }
+
+    /**
+     * 用指定的种子重新开始方块序列并启动，相同的种子得到相同的方块序列。
+     *
+     * @param seed
+     *            方块序列的种子
+     */
+    public void start(final long seed) {
+        if (gameState == GameState.Paused) {
+            return;
+        }
+
+        board.getPieceGenerator().reset(seed);
+        startGame();
+    }
+
+    private void startGame() {
+        if (gameState == GameState.Paused) {
+            return;
+        }
+
+        endRecording();
+        board.clearBoard();
+        ticks = 0;
+
+        if (gameRecorder != null) {
+            recording = true;
+            gameRecorder.gameStarted(board);
+        }
+
+        final boolean spawned = newShap();
+        fireBoardChanged();
+        changeState(spawned ? GameState.Running : GameState.GameOver);
+    }
+
+    /**
+     * 停止： 设置停止状态。
+     */
+    public void stop() {
+        changeState(GameState.Stopped);
+    }
+
+    /**
+     * 暂停/继续： 在运行和暂停状态之间切换。
+     */
+    public void pause() {
+        if (gameState == GameState.Running) {
+            changeState(GameState.Paused);
+        } else if (gameState == GameState.Paused) {
+            changeState(GameState.Running);
+        }
+    }
+
+    /**
+     * 一个下落节拍： 把当前方块下落一格，不能下落时落地、消行并产生新方块。
+     *
+     * @return 方块是否下落成功
+     */
+    public boolean tick() {
+        if (gameState != GameState.Running) {
+            return false;
+        }
+
+        ticks++;
+        return move(MovementDirection.Down, RotationDirection.NoRotation);
+    }
+
+    /**
+     * 尝试移动当前方块。
+     *
+     * @param movementDirection
+     *            移动方向
+     * @param rotationDirection
+     *            旋转方向
+     * @return 是否移动成功
+     */
+    public boolean tryToMove(final MovementDirection movementDirection, final RotationDirection rotationDirection) {
+        if (gameState != GameState.Running) {
+            return false;
+        }
+
+        if (recording) {
+            gameRecorder.moved(ticks, movementDirection, rotationDirection);
+        }
+        return move(movementDirection, rotationDirection);
+    }
+
+    /**
+     * 控制当前方块快速下落： 一次移动到底并落地，只通知一次画面变化。
+     */
+    public void dropDown() {
+        if (gameState != GameState.Running) {
+            return;
+        }
+
+        if (recording) {
+            gameRecorder.droppedDown(ticks);
+        }
+        board.hardDrop();
+        totalMoves++;
+        land();
+    }
+
+    private boolean move(final MovementDirection movementDirection, final RotationDirection rotationDirection) {
+        // 调用数据板进行当前方块移动
+        if (board.tryToMove(movementDirection, rotationDirection)) {
+            totalMoves++;
+            fireBoardChanged();
+            return true;
+        }
+
+        // 方块不能移动，如果为下落，则方块已落地
+        if (movementDirection == MovementDirection.Down) {
+            land();
+        }
+        return false;
+    }
+
+    /**
+     * 方块已落地： 消除已经满的行，同时生成新方块，不能生成时游戏结束。
+     */
+    private void land() {
+        final int clearedLines = board.clearFullLines();
+        totalLines += clearedLines;
+        if (EventLog.INFO_ENABLED && (clearedLines > 0)) {
+            EventLog.log(LogEvent.LinesCleared, clearedLines, board.getLinesOfCleared(), board.getScores());
+        }
+        final boolean spawned = newShap();
+        fireBoardChanged();
+
+        if (!spawned) {
+            // Game Over
+            changeState(GameState.GameOver);
+        }
+    }
+
+    /**
+     * 产生一个新方块，并立即尝试向下移动一格，如果能够移动，继续，否则判定为游戏结束。
+     *
+     * @return 新方块是否能够移动（不能移动即游戏结束）
+     */
+    private boolean newShap() {
+        board.newShap();
+
+        return board.tryToMove(MovementDirection.Down, RotationDirection.NoRotation);
+    }
+
+    private void changeState(final GameState newState) {
+        if (gameState == newState) {
+            return;
+        }
+
+        gameState = newState;
+        version++;
+        if (EventLog.INFO_ENABLED && (newState == GameState.GameOver)) {
+            EventLog.log(LogEvent.GameOver, board.getLinesOfCleared(), board.getScores(), ticks);
+        }
+        if ((newState == GameState.GameOver) || (newState == GameState.Stopped)) {
+            endRecording();
+        }
+
+        if (gameListener != null) {
+            gameListener.stateChanged(newState);
+        }
+    }
+
+    /**
+     * 结束正在记录的对局。
+     */
+    private void endRecording() {
+        if (recording) {
+            recording = false;
+            gameRecorder.gameEnded(ticks, board);
+        }
+    }
+
+    private void fireBoardChanged() {
+        version++;
+        if (gameListener != null) {
+            gameListener.boardChanged();
+        }
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    public GameState getGameState() {
+        return gameState;
+    }
+
+    public boolean isRunning() {
+        return (gameState == GameState.Running) || (gameState == GameState.Paused);
+    }
+
+    public boolean isPaused() {
+        return gameState == GameState.Paused;
+    }
+
+    public boolean isGameOver() {
+        return gameState == GameState.GameOver;
+    }
+
+    /**
+     * 当前等级，从0开始，每消除10行升一级。
+     */
+    public int getLevel() {
+        return board.getLinesOfCleared() / LINES_PER_LEVEL;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * 累计的成功移动次数（包括重力下落，不随开局清零）。
+     */
+    public long getTotalMoves() {
+        return totalMoves;
+    }
+
+    /**
+     * 累计的消除行数（不随开局清零）。
+     */
+    public long getTotalLines() {
+        return totalLines;
+    }
+
+    /**
+     * 版本号： 数据板或游戏状态每变化一次加1。
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setGameListener(final GameListener gameListener) {
+        this.gameListener = gameListener;
+    }
+
+    /**
+     * 设置对局记录，下一次启动时开始记录。
+     */
+    public void setGameRecorder(final GameRecorder gameRecorder) {
+        endRecording();
+        this.gameRecorder = gameRecorder;
+    }
+}
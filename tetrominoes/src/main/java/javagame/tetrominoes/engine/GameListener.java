@@ -0,0 +1,22 @@
+package javagame.tetrominoes.engine;
+
+import javagame.tetrominoes.enums.GameState;
+
+/**
+ * 游戏引擎事件侦听接口，由视图实现，用于刷新画面和状态栏。
+ */
+public interface GameListener {
+
+    /**
+     * 数据板内容（方块位置、已固定的方格、统计数据）发生了变化。
+     */
+    void boardChanged();
+
+    /**
+     * 游戏状态发生了变化。
+     *
+     * @param gameState
+     *            新的游戏状态
+     */
+    void stateChanged(GameState gameState);
+}
@@ -0,0 +1,223 @@
+package javagame.tetrominoes.engine;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javagame.tetrominoes.enums.GameState;
+import javagame.tetrominoes.enums.GravityCurve;
+import javagame.tetrominoes.enums.LatencyMetric;
+import javagame.tetrominoes.metrics.GameMetrics;
+
+/**
+ * 游戏循环： 独立的线程以固定步长推进模拟（输入命令、重力下落），模拟和绘制解耦，按目标帧率主动绘制。
+ * <p>
+ * 游戏引擎只在这个线程中被调用（单一写线程）；其他线程（如Swing的事件线程）通过{@link #invokeLater(Runnable)}把操作交给循环线程执行，
+ * 移动、旋转等按键放入{@link InputController}的无锁队列，在每个模拟步中按时间戳处理（含按住时的自动重复）。
+ * 每帧模拟之后，如果引擎有变化，循环线程生成不可变的{@link BoardSnapshot}并通过{@link AtomicReference}发布，绘制和其他线程只读快照。
+ * <p>
+ * 循环线程把每个模拟步的耗时、每帧唤醒的延迟、绘制耗时记录到{@link GameMetrics}中。
+ */
+public class GameLoop implements Runnable {
+    // 模拟步长： 每秒120步
+    private static final long STEP_NANOS = 1000000000L / 120;
+    // 一帧中最多补算的模拟步数，防止卡顿后追赶时越追越慢
+    private static final int MAX_STEPS_PER_FRAME = 12;
+    // 缺省帧率
+    private static final int DEFAULT_FRAMES_PER_SECOND = 60;
+
+    private final GameEngine engine;
+    // 运行指标
+    private final GameMetrics metrics = new GameMetrics();
+    // 等待在循环线程中执行的命令
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<Runnable>();
+    // 按键输入
+    private final InputController inputController;
+
+    // 重力曲线
+    private volatile GravityCurve gravityCurve = GravityCurve.Stepped;
+    // 目标帧率
+    private volatile int framesPerSecond = DEFAULT_FRAMES_PER_SECOND;
+    // 重力下落时执行的动作，缺省为引擎的下落节拍
+    private volatile Runnable tickAction;
+    // 画面绘制
+    private volatile FrameRenderer frameRenderer;
+
+    // 循环线程
+    private Thread thread;
+    private volatile boolean running;
+
+    // 最近发布的画面快照
+    private final AtomicReference<BoardSnapshot> snapshot = new AtomicReference<BoardSnapshot>();
+
+    // 重力下落累计的时间（纳秒）
+    private long gravityNanos;
+
+    public GameLoop(final GameEngine engine) {
+        this.engine = engine;
+        this.inputController = new InputController(engine, metrics);
+        this.tickAction = new Runnable() {
+            public void run() {
+                engine.tick();
+            }
+        };
+    }
+
+    /**
+     * 启动循环线程（已启动时不做处理）。
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+
+        running = true;
+        thread = new Thread(this, "game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 停止循环线程。
+     */
+    public synchronized void shutdown() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread = null;
+        }
+    }
+
+    /**
+     * 把一个操作交给循环线程，在下一个模拟步中执行。
+     *
+     * @param command
+     *            操作
+     */
+    public void invokeLater(final Runnable command) {
+        commands.add(command);
+    }
+
+    public void run() {
+        long previous = System.nanoTime();
+        long nextFrame = previous;
+        long accumulator = 0;
+
+        while (running) {
+            final long now = System.nanoTime();
+            accumulator = Math.min(accumulator + (now - previous), MAX_STEPS_PER_FRAME * STEP_NANOS);
+            previous = now;
+
+            // 固定步长推进模拟
+            while (accumulator >= STEP_NANOS) {
+                final long stepStart = System.nanoTime();
+                step();
+                metrics.record(LatencyMetric.TickTime, System.nanoTime() - stepStart);
+                accumulator -= STEP_NANOS;
+            }
+            metrics.updateCounts(engine.getTotalMoves(), engine.getTotalLines());
+
+            final BoardSnapshot published = publishSnapshot();
+            final FrameRenderer renderer = frameRenderer;
+            if (renderer != null) {
+                final long paintStart = System.nanoTime();
+                renderer.renderFrame(published);
+                final long paintEnd = System.nanoTime();
+                metrics.record(LatencyMetric.PaintTime, paintEnd - paintStart);
+                metrics.frameRendered(paintEnd);
+            }
+
+            // 等待到下一帧，落后太多时不追帧
+            final long frameNanos = 1000000000L / framesPerSecond;
+            nextFrame = Math.max(nextFrame + frameNanos, System.nanoTime() - frameNanos);
+            long waitNanos;
+            while (running && ((waitNanos = nextFrame - System.nanoTime()) > 0)) {
+                LockSupport.parkNanos(this, waitNanos);
+            }
+            metrics.record(LatencyMetric.TimerJitter, System.nanoTime() - nextFrame);
+        }
+    }
+
+    /**
+     * 一个模拟步： 执行输入命令和按键，累计重力时间，到达当前等级的下落间隔时下落。
+     */
+    private void step() {
+        Runnable command;
+        while ((command = commands.poll()) != null) {
+            command.run();
+        }
+        inputController.update(System.nanoTime());
+
+        if (engine.getGameState() != GameState.Running) {
+            gravityNanos = 0;
+            return;
+        }
+
+        gravityNanos += STEP_NANOS;
+        final long intervalNanos = gravityCurve.getIntervalNanos(engine.getLevel());
+        while ((gravityNanos >= intervalNanos) && (engine.getGameState() == GameState.Running)) {
+            gravityNanos -= intervalNanos;
+            tickAction.run();
+        }
+    }
+
+    /**
+     * 引擎有变化时（或还没有快照时）发布新的快照。
+     *
+     * @return 最近发布的快照
+     */
+    private BoardSnapshot publishSnapshot() {
+        final BoardSnapshot published = snapshot.get();
+        if ((published != null) && (published.getVersion() == engine.getVersion())) {
+            return published;
+        }
+
+        final BoardSnapshot captured = BoardSnapshot.capture(engine);
+        snapshot.set(captured);
+        return captured;
+    }
+
+    /**
+     * 最近发布的画面快照（任意线程），循环线程还没有运行时为null。
+     */
+    public BoardSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    public GameMetrics getMetrics() {
+        return metrics;
+    }
+
+    public InputController getInputController() {
+        return inputController;
+    }
+
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    public GravityCurve getGravityCurve() {
+        return gravityCurve;
+    }
+
+    public void setGravityCurve(final GravityCurve gravityCurve) {
+        this.gravityCurve = gravityCurve;
+    }
+
+    public int getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    public void setFramesPerSecond(final int framesPerSecond) {
+        this.framesPerSecond = Math.max(1, framesPerSecond);
+    }
+
+    public void setTickAction(final Runnable tickAction) {
+        this.tickAction = tickAction;
+    }
+
+    public void setFrameRenderer(final FrameRenderer frameRenderer) {
+        this.frameRenderer = frameRenderer;
+    }
+}
@@ -0,0 +1,51 @@
+package javagame.tetrominoes.engine;
+
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDirection;
+
+/**
+ * 对局记录接口： 游戏引擎在开局、每个被接受的操作、结束时回调，配合方块序列的种子可以完整重现一局游戏。
+ * <p>
+ * 操作的时间用下落节拍数（{@link GameEngine#getTicks()}）表示，重放时先补足节拍再执行操作。
+ */
+public interface GameRecorder {
+
+    /**
+     * 开局（数据板已清空，方块序列已按种子重新开始）。
+     *
+     * @param board
+     *            数据板
+     */
+    void gameStarted(Board board);
+
+    /**
+     * 一次移动或旋转操作。
+     *
+     * @param tick
+     *            操作时的下落节拍数
+     * @param movementDirection
+     *            移动方向
+     * @param rotationDirection
+     *            旋转方向
+     */
+    void moved(long tick, MovementDirection movementDirection, RotationDirection rotationDirection);
+
+    /**
+     * 一次快速下落操作。
+     *
+     * @param tick
+     *            操作时的下落节拍数
+     */
+    void droppedDown(long tick);
+
+    /**
+     * 对局结束（游戏结束或被停止）。
+     *
+     * @param tick
+     *            结束时的下落节拍数
+     * @param board
+     *            数据板
+     */
+    void gameEnded(long tick, Board board);
+}
@@ -0,0 +1,265 @@
+package javagame.tetrominoes.engine;
+
+import java.util.Arrays;
+
+import javagame.tetrominoes.enums.InputAction;
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDirection;
+import javagame.tetrominoes.metrics.GameMetrics;
+
+/**
+ * 输入控制器： 按键事件带着时间戳放入无锁队列，由游戏循环线程在每个模拟步中按顺序处理，按住的左右移动和软降按自己的时间自动重复。
+ * <p>
+ * 左右移动： 按下时立即移动一格，按住{@code DAS}（delayed auto shift）后开始自动重复，之后每隔{@code ARR}（auto repeat rate）移动一格，
+ * ARR为0时直接移到底；同时按住左右时后按下的优先。软降： 按下时立即下移一格，按住时按软降间隔重复。旋转和快速下落每次按下只执行一次。
+ * <p>
+ * 操作系统的按键重复被忽略： 按住时重复的按下事件不做处理，成对出现的松开/按下事件（松开后很快又按下）视为一直按住。
+ * 自动重复按事件的时间戳计算，与模拟步的边界、Swing事件线程的延迟无关。一帧中的多次移动只在该帧绘制一次。
+ */
+public class InputController {
+    private static final InputAction[] ACTIONS = InputAction.values();
+    // 没有等待确认的松开
+    private static final long NONE = Long.MIN_VALUE;
+    private static final long NANOS_PER_MILLI = 1000000L;
+    // 松开后在这个时间内又按下同一个键，视为操作系统的按键重复
+    private static final long REPEAT_GAP_NANOS = 5 * NANOS_PER_MILLI;
+    // 一次处理中一个操作最多自动重复的次数，防止线程长时间停顿后一次补上大量移动
+    private static final int MAX_REPEATS = 64;
+    private static final int QUEUE_CAPACITY = 256;
+
+    // 缺省的DAS、ARR、软降间隔
+    private static final long DEFAULT_DELAYED_AUTO_SHIFT_NANOS = 170 * NANOS_PER_MILLI;
+    private static final long DEFAULT_AUTO_REPEAT_NANOS = 50 * NANOS_PER_MILLI;
+    private static final long DEFAULT_SOFT_DROP_NANOS = 50 * NANOS_PER_MILLI;
+
+    private final GameEngine engine;
+    private final GameMetrics metrics;
+    // 按键事件队列（Swing事件线程放入，游戏循环线程取出）
+    private final InputQueue queue = new InputQueue(QUEUE_CAPACITY);
+
+    private volatile long delayedAutoShiftNanos = DEFAULT_DELAYED_AUTO_SHIFT_NANOS;
+    private volatile long autoRepeatNanos = DEFAULT_AUTO_REPEAT_NANOS;
+    private volatile long softDropNanos = DEFAULT_SOFT_DROP_NANOS;
+
+    // 以下只在游戏循环线程中访问，下标为操作序号
+    // 按键是否按住
+    private final boolean[] held = new boolean[ACTIONS.length];
+    // 等待确认的松开时间（确认前仍视为按住）
+    private final long[] releasedNanos = new long[ACTIONS.length];
+    // 下一次自动重复的时间
+    private final long[] nextRepeatNanos = new long[ACTIONS.length];
+    // 正在生效的左右移动，没有时为null
+    private InputAction shift;
+    // ARR为0时上次移到底后引擎的版本号，引擎没有变化时不再尝试
+    private long blockedVersion = -1;
+
+    public InputController(final GameEngine engine, final GameMetrics metrics) {
+        this.engine = engine;
+        this.metrics = metrics;
+        Arrays.fill(releasedNanos, NONE);
+    }
+
+    /**
+     * 按下按键（任意线程，不分配对象）。
+     *
+     * @param action
+     *            操作
+     * @param nanos
+     *            按下时的{@link System#nanoTime()}
+     * @return 是否放入队列，队列满时返回false
+     */
+    public boolean keyPressed(final InputAction action, final long nanos) {
+        return queue.offer(action, true, nanos);
+    }
+
+    /**
+     * 松开按键（任意线程，不分配对象）。
+     *
+     * @param action
+     *            操作
+     * @param nanos
+     *            松开时的{@link System#nanoTime()}
+     * @return 是否放入队列，队列满时返回false
+     */
+    public boolean keyReleased(final InputAction action, final long nanos) {
+        return queue.offer(action, false, nanos);
+    }
+
+    /**
+     * 处理队列中的事件，执行到当前时间为止的自动重复（只在游戏循环线程中调用）。
+     *
+     * @param nowNanos
+     *            当前的{@link System#nanoTime()}
+     */
+    public void update(final long nowNanos) {
+        queue.drain(this);
+        advance(nowNanos);
+    }
+
+    /**
+     * 处理一个事件： 先执行事件之前的自动重复，再按下或松开。
+     */
+    void handle(final InputAction action, final boolean pressed, final long nanos) {
+        advance(nanos);
+        if (pressed) {
+            press(action, nanos);
+        } else if (held[action.ordinal()] && (releasedNanos[action.ordinal()] == NONE)) {
+            // 等一小段时间确认不是成对的松开/按下
+            releasedNanos[action.ordinal()] = nanos;
+        }
+    }
+
+    private void press(final InputAction action, final long nanos) {
+        final int index = action.ordinal();
+        if (held[index]) {
+            // 操作系统的按键重复
+            releasedNanos[index] = NONE;
+            return;
+        }
+
+        held[index] = true;
+        metrics.inputHandled(nanos);
+        apply(action);
+        if (action == InputAction.SoftDrop) {
+            nextRepeatNanos[index] = nanos + softDropNanos;
+        } else if (action.isRepeatable()) {
+            shift = action;
+            nextRepeatNanos[index] = nanos + delayedAutoShiftNanos;
+            blockedVersion = -1;
+        }
+    }
+
+    /**
+     * 确认到期的松开，执行到指定时间为止的自动重复。
+     */
+    private void advance(final long untilNanos) {
+        for (final InputAction action : ACTIONS) {
+            final long released = releasedNanos[action.ordinal()];
+            if ((released != NONE) && ((released + REPEAT_GAP_NANOS) <= untilNanos)) {
+                if ((action == shift) || (action == InputAction.SoftDrop)) {
+                    repeat(action, released);
+                }
+                release(action, released);
+            }
+        }
+
+        if (shift != null) {
+            repeat(shift, untilNanos);
+        }
+        if (held[InputAction.SoftDrop.ordinal()]) {
+            repeat(InputAction.SoftDrop, untilNanos);
+        }
+    }
+
+    private void release(final InputAction action, final long nanos) {
+        held[action.ordinal()] = false;
+        releasedNanos[action.ordinal()] = NONE;
+        if (action != shift) {
+            return;
+        }
+
+        // 松开了生效的方向，另一个方向还按住时改为它，重新计算DAS
+        final InputAction other = (action == InputAction.MoveLeft) ? InputAction.MoveRight : InputAction.MoveLeft;
+        if (held[other.ordinal()]) {
+            shift = other;
+            nextRepeatNanos[other.ordinal()] = nanos + delayedAutoShiftNanos;
+            blockedVersion = -1;
+        } else {
+            shift = null;
+        }
+    }
+
+    /**
+     * 执行一个按住的操作到指定时间为止的自动重复（等待确认松开时只执行到松开的时间）。
+     */
+    private void repeat(final InputAction action, final long untilNanos) {
+        final int index = action.ordinal();
+        final long limit = (releasedNanos[index] == NONE) ? untilNanos : Math.min(untilNanos, releasedNanos[index]);
+        long next = nextRepeatNanos[index];
+        if (next > limit) {
+            return;
+        }
+
+        final long interval = (action == InputAction.SoftDrop) ? softDropNanos : autoRepeatNanos;
+        if (interval == 0) {
+            // 直接移到底，引擎有变化（旋转、新方块等）时再试
+            if (engine.getVersion() != blockedVersion) {
+                while (apply(action)) {
+                    continue;
+                }
+                blockedVersion = engine.getVersion();
+            }
+            return;
+        }
+
+        int repeats = 0;
+        while ((next <= limit) && (repeats < MAX_REPEATS)) {
+            apply(action);
+            next += interval;
+            repeats++;
+        }
+        nextRepeatNanos[index] = (next <= limit) ? (limit + interval) : next;
+    }
+
+    /**
+     * 执行一次操作。
+     *
+     * @return 是否移动成功
+     */
+    private boolean apply(final InputAction action) {
+        switch (action) {
+        case MoveLeft:
+            return engine.tryToMove(MovementDirection.Left, RotationDirection.NoRotation);
+        case MoveRight:
+            return engine.tryToMove(MovementDirection.Right, RotationDirection.NoRotation);
+        case SoftDrop:
+            return engine.tryToMove(MovementDirection.Down, RotationDirection.NoRotation);
+        case RotateLeft:
+            return engine.tryToMove(MovementDirection.NoMovement, RotationDirection.Left);
+        case RotateRight:
+            return engine.tryToMove(MovementDirection.NoMovement, RotationDirection.Right);
+        case HardDrop:
+            engine.dropDown();
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * 队列满时丢弃的事件数。
+     */
+    public long getDroppedEvents() {
+        return queue.getDropped();
+    }
+
+    public long getDelayedAutoShiftNanos() {
+        return delayedAutoShiftNanos;
+    }
+
+    public void setDelayedAutoShiftNanos(final long delayedAutoShiftNanos) {
+        this.delayedAutoShiftNanos = Math.max(0, delayedAutoShiftNanos);
+    }
+
+    public long getAutoRepeatNanos() {
+        return autoRepeatNanos;
+    }
+
+    /**
+     * 设置左右移动自动重复的间隔，0表示直接移到底。
+     */
+    public void setAutoRepeatNanos(final long autoRepeatNanos) {
+        this.autoRepeatNanos = Math.max(0, autoRepeatNanos);
+    }
+
+    public long getSoftDropNanos() {
+        return softDropNanos;
+    }
+
+    /**
+     * 设置软降重复的间隔（至少1纳秒）。
+     */
+    public void setSoftDropNanos(final long softDropNanos) {
+        this.softDropNanos = Math.max(1, softDropNanos);
+    }
+}
@@ -0,0 +1,97 @@
+package javagame.tetrominoes.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javagame.tetrominoes.enums.InputAction;
+
+/**
+ * 无锁的多生产者/单消费者环形缓冲区，存放按下/松开按键的输入事件。
+ * <p>
+ * 事件按列存放在预先分配的基本类型数组中，放入一个事件不分配对象。生产者用CAS领取序号，写完字段后发布该槽位；
+ * 缓冲区满时丢弃事件并计数，Swing事件线程永远不会等待游戏循环。
+ */
+final class InputQueue {
+    private static final InputAction[] ACTIONS = InputAction.values();
+
+    private final int capacity;
+    private final int mask;
+
+    // 事件的时间戳（System.nanoTime）
+    private final long[] times;
+    // 事件： 操作序号 * 2 + 是否按下
+    private final int[] events;
+    // 槽位已发布的序号+1，消费者据此判断槽位是否写完
+    private final AtomicLongArray published;
+
+    // 下一个被领取的序号
+    private final AtomicLong claimed = new AtomicLong();
+    // 下一个被消费的序号
+    private final AtomicLong consumed = new AtomicLong();
+    // 丢弃的事件数
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity
+     *            容量，向上取为2的幂
+     */
+    InputQueue(final int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        mask = this.capacity - 1;
+        times = new long[this.capacity];
+        events = new int[this.capacity];
+        published = new AtomicLongArray(this.capacity);
+    }
+
+    /**
+     * 放入一个事件（任意线程）。
+     *
+     * @return 是否放入，缓冲区满时返回false
+     */
+    boolean offer(final InputAction action, final boolean pressed, final long nanos) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if ((sequence - consumed.get()) >= capacity) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        final int slot = (int) (sequence & mask);
+        times[slot] = nanos;
+        events[slot] = (action.ordinal() << 1) | (pressed ? 1 : 0);
+        published.lazySet(slot, sequence + 1);
+        return true;
+    }
+
+    /**
+     * 把已发布的事件按放入的顺序交给输入控制器（只能在消费者线程中调用）。
+     *
+     * @return 处理的事件数
+     */
+    int drain(final InputController controller) {
+        long sequence = consumed.get();
+        int count = 0;
+        while (true) {
+            final int slot = (int) (sequence & mask);
+            if (published.get(slot) != (sequence + 1)) {
+                return count;
+            }
+
+            final int event = events[slot];
+            controller.handle(ACTIONS[event >>> 1], (event & 1) != 0, times[slot]);
+            sequence++;
+            count++;
+            // 释放槽位，生产者可以重用
+            consumed.lazySet(sequence);
+        }
+    }
+
+    /**
+     * 丢弃的事件数。
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,8 @@
+package javagame.tetrominoes.enums;
+
+/**
+ * 游戏状态。
+ */
+public enum GameState {
+    Stopped, Running, Paused, GameOver;
+}
@@ -0,0 +1,48 @@
+package javagame.tetrominoes.enums;
+
+/**
+ * 重力曲线： 不同等级下方块自动下落一格的时间间隔。
+ */
+public enum GravityCurve {
+    /**
+     * 固定间隔，与等级无关（原来定时器的400毫秒）。
+     */
+    Constant {
+        @Override
+        public long getIntervalNanos(final int level) {
+            return 400 * NANOS_PER_MILLI;
+        }
+    },
+    /**
+     * 从400毫秒开始，每升一级缩短15%，最快20毫秒。
+     */
+    Stepped {
+        @Override
+        public long getIntervalNanos(final int level) {
+            final double millis = 400 * Math.pow(0.85, level);
+            return Math.max(20 * NANOS_PER_MILLI, (long) (millis * NANOS_PER_MILLI));
+        }
+    },
+    /**
+     * 俄罗斯方块标准指南的曲线： (0.8 - (n - 1) * 0.007) ^ (n - 1) 秒，本游戏的0级对应指南的第1级，19级之后不再加快。
+     */
+    Guideline {
+        @Override
+        public long getIntervalNanos(final int level) {
+            final int n = Math.min(Math.max(level, 0), 19);
+            final double seconds = Math.pow(0.8 - (n * 0.007), n);
+            return (long) (seconds * 1000 * NANOS_PER_MILLI);
+        }
+    };
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * 获取指定等级的下落间隔。
+     *
+     * @param level
+     *            等级，从0开始
+     * @return 下落间隔（纳秒）
+     */
+    public abstract long getIntervalNanos(int level);
+}
@@ -0,0 +1,42 @@
+package javagame.tetrominoes.enums;
+
+/**
+ * 玩家的操作，由按键映射而来。
+ */
+public enum InputAction {
+    /**
+     * 左移，按住时自动重复（DAS/ARR）。
+     */
+    MoveLeft(true),
+    /**
+     * 右移，按住时自动重复（DAS/ARR）。
+     */
+    MoveRight(true),
+    /**
+     * 向下移动一格（软降），按住时按软降间隔重复。
+     */
+    SoftDrop(true),
+    /**
+     * 向左旋转，每次按下执行一次。
+     */
+    RotateLeft(false),
+    /**
+     * 向右旋转，每次按下执行一次。
+     */
+    RotateRight(false),
+    /**
+     * 快速下落，每次按下执行一次。
+     */
+    HardDrop(false);
+
+    // 按住时是否自动重复
+    private final boolean repeatable;
+
+    private InputAction(final boolean repeatable) {
+        this.repeatable = repeatable;
+    }
+
+    public boolean isRepeatable() {
+        return repeatable;
+    }
+}
@@ -0,0 +1,23 @@
+package javagame.tetrominoes.enums;
+
+/**
+ * 游戏循环记录的耗时指标。
+ */
+public enum LatencyMetric {
+    /**
+     * 一个模拟步（输入命令、重力下落）的耗时。
+     */
+    TickTime,
+    /**
+     * 游戏循环每帧被唤醒时比预定时间晚了多少。
+     */
+    TimerJitter,
+    /**
+     * 绘制一帧的耗时。
+     */
+    PaintTime,
+    /**
+     * 从按键到反映按键结果的画面绘制完成的延迟。
+     */
+    InputLatency;
+}
@@ -0,0 +1,64 @@
+package javagame.tetrominoes.enums;
+
+/**
+ * 结构化的日志事件类型： 每种事件有固定的级别和最多4个整数字段，记录时不拼接字符串。
+ * <p>
+ * 字段名为 tetrominoes、degree、movement、rotation、metric 的值为对应枚举的序号，输出时转为名字。
+ */
+public enum LogEvent {
+    /**
+     * 产生新方块。
+     */
+    ShapeSpawned(LogLevel.Debug, "tetrominoes", "x", "y"),
+    /**
+     * 方块移动或旋转。
+     */
+    ShapeMoved(LogLevel.Trace, "tetrominoes", "x", "y", "degree"),
+    /**
+     * 方块落地时与已固定的方格重叠或越界，没有固定到数据板中。
+     */
+    ShapeLockRejected(LogLevel.Warn, "tetrominoes", "x", "y", "degree"),
+    /**
+     * 消行。
+     */
+    LinesCleared(LogLevel.Info, "lines", "linesOfCleared", "scores"),
+    /**
+     * 游戏结束。
+     */
+    GameOver(LogLevel.Info, "linesOfCleared", "scores", "ticks"),
+    /**
+     * 日志缓冲区满时丢弃的事件数（由输出线程产生）。
+     */
+    EventsDropped(LogLevel.Warn, "count"),
+    /**
+     * 指标报告： 一个报告周期内的移动次数和消除行数。
+     */
+    Throughput(LogLevel.Info, "moves", "lines", "millis"),
+    /**
+     * 指标报告： 一种耗时指标的分布（累计，单位微秒）。
+     */
+    Latency(LogLevel.Info, "metric", "p50Micros", "p99Micros", "maxMicros");
+
+    // 每个事件最多的字段数
+    public static final int MAX_FIELDS = 4;
+
+    private final LogLevel level;
+    private final String[] fieldNames;
+
+    private LogEvent(final LogLevel level, final String... fieldNames) {
+        this.level = level;
+        this.fieldNames = fieldNames;
+    }
+
+    public LogLevel getLevel() {
+        return level;
+    }
+
+    public int getFieldCount() {
+        return fieldNames.length;
+    }
+
+    public String getFieldName(final int index) {
+        return fieldNames[index];
+    }
+}
@@ -0,0 +1,8 @@
+package javagame.tetrominoes.enums;
+
+/**
+ * 事件日志的级别，从低到高。Off表示关闭全部日志。
+ */
+public enum LogLevel {
+    Trace, Debug, Info, Warn, Error, Off;
+}
@@ -4,5 +4,22 @@ package javagame.tetrominoes.enums;
  * 移动方向。
  */
 public enum MovementDirection {
-    NoMovement, Left, Right, Down;
-}
\ No newline at end of file
+    NoMovement(0, 0), Left(-1, 0), Right(1, 0), Down(0, -1);
+
+    // 移动时x、y坐标的变化量
+    private final int dx;
+    private final int dy;
+
+    private MovementDirection(final int dx, final int dy) {
+        this.dx = dx;
+        this.dy = dy;
+    }
+
+    public int getDx() {
+        return dx;
+    }
+
+    public int getDy() {
+        return dy;
+    }
+}
@@ -0,0 +1,38 @@
+package javagame.tetrominoes.enums;
+
+import javagame.tetrominoes.data.BagPieceGenerator;
+import javagame.tetrominoes.data.PieceGenerator;
+import javagame.tetrominoes.data.RandomPieceGenerator;
+
+/**
+ * 方块序列的随机方式。
+ */
+public enum Randomizer {
+    /**
+     * 均匀随机。
+     */
+    Uniform {
+        @Override
+        public PieceGenerator create(final long seed) {
+            return new RandomPieceGenerator(seed);
+        }
+    },
+    /**
+     * 7袋随机。
+     */
+    SevenBag {
+        @Override
+        public PieceGenerator create(final long seed) {
+            return new BagPieceGenerator(seed);
+        }
+    };
+
+    /**
+     * 创建该随机方式的方块序列生成器。
+     *
+     * @param seed
+     *            种子
+     * @return 方块序列生成器
+     */
+    public abstract PieceGenerator create(long seed);
+}
@@ -6,6 +6,9 @@ package javagame.tetrominoes.enums;
 public enum RotationDegree {
     Degree0, Degree90, Degree180, Degree270;
 
+    // 角度数组缓存（values()每次调用都会复制数组）
+    private static final RotationDegree[] VALUES = values();
+
     /**
      * 旋转一个角度。
      * 
@@ -28,13 +31,13 @@ public enum RotationDegree {
         if (this == Degree0) {
             return Degree270;
         }
-        return RotationDegree.values()[ordinal() - 1];
+        return VALUES[ordinal() - 1];
     }
 
     private RotationDegree rotateLeft() {
         if (this == Degree270) {
             return Degree0;
         }
-        return RotationDegree.values()[ordinal() + 1];
+        return VALUES[ordinal() + 1];
     }
 }
\ No newline at end of file
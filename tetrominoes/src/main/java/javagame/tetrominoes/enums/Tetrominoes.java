@@ -1,7 +1,7 @@
 package javagame.tetrominoes.enums;
 
 import java.awt.Color;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javagame.tetrominoes.data.Coords;
 
@@ -10,33 +10,38 @@ import javagame.tetrominoes.data.Coords;
  */
 public enum Tetrominoes {
     ZShape(new Coords[] { new Coords(0, -1), new Coords(0, 0), new Coords(-1, 0), new Coords(-1, 1) },
-            new Color(204, 102, 102)), //
+            0xCC6666), //
     SShape(new Coords[] { new Coords(0, -1), new Coords(0, 0), new Coords(1, 0), new Coords(1, 1) },
-            new Color(102, 204, 102)), //
+            0x66CC66), //
     LineShape(new Coords[] { new Coords(0, -1), new Coords(0, 0), new Coords(0, 1), new Coords(0, 2) },
-            new Color(102, 102, 204)), //
+            0x6666CC), //
     TShape(new Coords[] { new Coords(-1, 0), new Coords(0, 0), new Coords(1, 0), new Coords(0, 1) },
-            new Color(204, 204, 102)), //
+            0xCCCC66), //
     SquareShape(new Coords[] { new Coords(0, 0), new Coords(1, 0), new Coords(0, 1), new Coords(1, 1) },
-            new Color(204, 102, 204)), //
+            0xCC66CC), //
     LShape(new Coords[] { new Coords(-1, -1), new Coords(0, -1), new Coords(0, 0), new Coords(0, 1) },
-            new Color(102, 204, 204)), //
+            0x66CCCC), //
     MirroredLShape(new Coords[] { new Coords(1, -1), new Coords(0, -1), new Coords(0, 0), new Coords(0, 1) },
-            new Color(218, 170, 0));//
+            0xDAAA00);//
+
+    // 方块类型数组缓存（values()每次调用都会复制数组）
+    private static final Tetrominoes[] VALUES = values();
 
     // 方块各个顶点坐标数组
     private Coords[][] vertexes;
-    // 方块颜色
-    private Color color;
+    // 方块颜色的RGB值（不在类初始化时创建Color对象，无界面运行时不加载AWT）
+    private final int rgb;
+    // 方块颜色，第一次绘画时才创建
+    private volatile Color color;
 
-    private Tetrominoes(final Coords[] coords, final Color c) {
+    private Tetrominoes(final Coords[] coords, final int rgb) {
         vertexes = new Coords[RotationDegree.values().length][];
         vertexes[RotationDegree.Degree0.ordinal()] = coords;
 
         // 初始化各个角度的形状数据
         initVertexes();
 
-        color = c;
+        this.rgb = rgb;
     }
 
     /**
@@ -65,15 +70,13 @@ public enum Tetrominoes {
     }
 
     /**
-     * 获取一个随机的方块。
+     * 获取一个随机的方块（不可重现，需要可重现的序列时使用{@link javagame.tetrominoes.data.PieceGenerator}）。
      */
     public static Tetrominoes buidRandomTetrominoes() {
-        final Random random = new Random(System.currentTimeMillis());
-        final Tetrominoes[] values = Tetrominoes.values();
         // 生成随机数
-        final int randomIndex = random.nextInt(values.length);
+        final int randomIndex = ThreadLocalRandom.current().nextInt(VALUES.length);
 
-        return values[randomIndex];
+        return VALUES[randomIndex];
     }
 
     /**
@@ -93,7 +96,21 @@ public enum Tetrominoes {
      * @return 方块颜色
      */
     public Color getColor() {
-        return color;
+        Color c = color;
+        if (c == null) {
+            c = new Color(rgb);
+            color = c;
+        }
+        return c;
+    }
+
+    /**
+     * 获取方块颜色的RGB值
+     * 
+     * @return 方块颜色RGB值
+     */
+    public int getRgb() {
+        return rgb;
     }
 
     /**
@@ -0,0 +1,426 @@
+package javagame.tetrominoes.env;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.data.ShapeTable;
+import javagame.tetrominoes.enums.RotationDegree;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 批量的强化学习环境： 同时推进N个数据板（reset/step，观察值、奖励、结束标志），供学习实验使用。
+ * <p>
+ * 状态不是N个{@link Board}对象，而是按字段存放的基本类型缓冲区（struct-of-arrays）：
+ * 行位掩码（每个环境 boardHight 个long，与{@link Board#getRowBits(int)}相同）、每列高度、当前方块类型序号、原点坐标
+ * （新方块总是以{@link RotationDegree#Degree0}出现，不单独存放角度）、得分、消除行数、随机数状态，以及每步的动作、奖励和结束标志。缓冲区可以分配在堆外（直接缓冲区，本机字节序），
+ * 本地代码可以直接读写，不需要复制。
+ * <p>
+ * 动作是一次放置： {@code 角度序号 * boardWidth + 原点x坐标}，方块从出现的位置旋转到该角度后平移并直接落下
+ * （不检查路径，超出范围的x取最近的合法值）；奖励为这一步消除的行数，得分规则与{@link Board}相同（下落格数加消行得分）。
+ * 新方块出现时重叠（或放置的位置在出现位置就重叠）则该环境结束，下一次{@link #step()}时自动重新开始，忽略它的动作。
+ * <p>
+ * 一次{@link #step()}把环境分段交给Fork/Join线程池并行处理，每个环境只被一个线程访问。环境不是线程安全的，
+ * 调用{@link #reset(long)}、{@link #step()}时不能同时读写缓冲区。
+ */
+public class VectorEnvironment {
+    // 动作的角度个数
+    public static final int ROTATIONS = RotationDegree.values().length;
+
+    // 方块类型数组缓存
+    private static final Tetrominoes[] TETROMINOES = Tetrominoes.values();
+    private static final RotationDegree[] DEGREES = RotationDegree.values();
+    // 每个并行任务至少处理的环境数
+    private static final int MIN_CHUNK = 64;
+    // 随机数状态的增量（SplitMix64）
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final int count;
+    private final int boardWidth;
+    private final int boardHight;
+    private final long fullRowMask;
+    private final ForkJoinPool pool;
+
+    // 行位掩码，下标为 环境 * boardHight + y
+    private final LongBuffer rows;
+    // 每列的表面高度，下标为 环境 * boardWidth + x
+    private final IntBuffer heights;
+    // 当前方块的类型序号、原点坐标
+    private final IntBuffer pieces;
+    private final IntBuffer xs;
+    private final IntBuffer ys;
+    // 得分、消除的行数、已放置的方块数
+    private final IntBuffer scores;
+    private final IntBuffer lines;
+    private final IntBuffer placed;
+    // 方块序列的随机数状态
+    private final LongBuffer randomStates;
+    // 每步的动作、奖励、结束标志（1为结束）
+    private final IntBuffer actions;
+    private final FloatBuffer rewards;
+    private final ByteBuffer dones;
+
+    public VectorEnvironment(final int count, final int boardWidth, final int boardHight, final boolean offHeap) {
+        this(count, boardWidth, boardHight, offHeap, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param count
+     *            环境个数
+     * @param boardWidth
+     *            宽度，不超过64
+     * @param boardHight
+     *            高度
+     * @param offHeap
+     *            是否把缓冲区分配在堆外
+     * @param pool
+     *            并行使用的线程池，null表示在当前线程中顺序处理
+     */
+    public VectorEnvironment(final int count, final int boardWidth, final int boardHight, final boolean offHeap,
+            final ForkJoinPool pool) {
+        if ((count <= 0) || (boardWidth <= 0) || (boardWidth > Long.SIZE) || (boardHight <= 0)) {
+            throw new IllegalArgumentException(
+                    "环境参数不合法: " + count + " 个 " + boardWidth + " x " + boardHight);
+        }
+
+        this.count = count;
+        this.boardWidth = boardWidth;
+        this.boardHight = boardHight;
+        this.fullRowMask = (boardWidth == Long.SIZE) ? -1L : ((1L << boardWidth) - 1);
+        this.pool = pool;
+
+        rows = longBuffer(count * boardHight, offHeap);
+        heights = intBuffer(count * boardWidth, offHeap);
+        pieces = intBuffer(count, offHeap);
+        xs = intBuffer(count, offHeap);
+        ys = intBuffer(count, offHeap);
+        scores = intBuffer(count, offHeap);
+        lines = intBuffer(count, offHeap);
+        placed = intBuffer(count, offHeap);
+        randomStates = longBuffer(count, offHeap);
+        actions = intBuffer(count, offHeap);
+        rewards = offHeap ? ByteBuffer.allocateDirect(count * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer()
+                : FloatBuffer.allocate(count);
+        dones = offHeap ? ByteBuffer.allocateDirect(count) : ByteBuffer.allocate(count);
+    }
+
+    private static LongBuffer longBuffer(final int size, final boolean offHeap) {
+        return offHeap ? ByteBuffer.allocateDirect(size * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer()
+                : LongBuffer.allocate(size);
+    }
+
+    private static IntBuffer intBuffer(final int size, final boolean offHeap) {
+        return offHeap ? ByteBuffer.allocateDirect(size * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer()
+                : IntBuffer.allocate(size);
+    }
+
+    /**
+     * 重新开始所有环境，第i个环境的方块序列由种子和i决定。
+     *
+     * @param seed
+     *            种子
+     */
+    public void reset(final long seed) {
+        for (int env = 0; env < count; env++) {
+            randomStates.put(env, mix(seed + ((env + 1) * GOLDEN_GAMMA)));
+            resetEnvironment(env);
+        }
+    }
+
+    /**
+     * 执行一步： 每个环境按{@link #getActions()}中的动作放置当前方块，写入奖励和结束标志；上一步已结束的环境重新开始。
+     */
+    public void step() {
+        if ((pool == null) || (count <= MIN_CHUNK)) {
+            stepRange(0, count);
+        } else {
+            pool.invoke(new StepTask(0, count));
+        }
+    }
+
+    /**
+     * 执行一步（复制动作到{@link #getActions()}后调用{@link #step()}）。
+     *
+     * @param stepActions
+     *            每个环境的动作
+     */
+    public void step(final int[] stepActions) {
+        for (int env = 0; env < count; env++) {
+            actions.put(env, stepActions[env]);
+        }
+        step();
+    }
+
+    /**
+     * 一段环境的并行任务，不断对半拆分直到不超过{@link #MIN_CHUNK}个。
+     */
+    private class StepTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        StepTask(final int from, final int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if ((to - from) <= MIN_CHUNK) {
+                stepRange(from, to);
+                return;
+            }
+
+            final int middle = (from + to) >>> 1;
+            invokeAll(new StepTask(from, middle), new StepTask(middle, to));
+        }
+    }
+
+    private void stepRange(final int from, final int to) {
+        for (int env = from; env < to; env++) {
+            if (dones.get(env) != 0) {
+                resetEnvironment(env);
+            } else {
+                stepEnvironment(env);
+            }
+        }
+    }
+
+    /**
+     * 清空一个环境的数据板并产生第一个方块。
+     */
+    private void resetEnvironment(final int env) {
+        final int rowBase = env * boardHight;
+        for (int y = 0; y < boardHight; y++) {
+            rows.put(rowBase + y, 0L);
+        }
+        final int heightBase = env * boardWidth;
+        for (int x = 0; x < boardWidth; x++) {
+            heights.put(heightBase + x, 0);
+        }
+        scores.put(env, 0);
+        lines.put(env, 0);
+        placed.put(env, 0);
+        rewards.put(env, 0);
+        dones.put(env, (byte) 0);
+        spawn(env);
+    }
+
+    /**
+     * 按动作放置一个环境的当前方块，消行，产生下一个方块。
+     */
+    private void stepEnvironment(final int env) {
+        final int action = actions.get(env);
+        final int rotation = Math.floorMod(action / boardWidth, ROTATIONS);
+        final ShapeTable shapeTable = ShapeTable.of(TETROMINOES[pieces.get(env)], DEGREES[rotation]);
+        final int x = Math.min(Math.max(action % boardWidth, shapeTable.getMinX()), shapeTable.getMaxX(boardWidth));
+        final int spawnY = ys.get(env);
+
+        rewards.put(env, 0);
+        final int rowBase = env * boardHight;
+        if (shapeTable.collides(rows, rowBase, boardWidth, boardHight, x, spawnY)) {
+            dones.put(env, (byte) 1);
+            return;
+        }
+
+        // 按表面高度和底部轮廓算落点，在悬空部分的下方时逐行检测碰撞
+        final int heightBase = (env * boardWidth) + x + shapeTable.getMinDx();
+        int landingY = Integer.MIN_VALUE;
+        for (int column = 0; column < shapeTable.getWidth(); column++) {
+            landingY = Math.max(landingY, heights.get(heightBase + column) - shapeTable.getBottomDy(column));
+        }
+        if (landingY > spawnY) {
+            landingY = spawnY;
+            while (!shapeTable.collides(rows, rowBase, boardWidth, boardHight, x, landingY - 1)) {
+                landingY--;
+            }
+        }
+
+        final int cleared = lock(env, shapeTable, x, landingY);
+        scores.put(env, scores.get(env) + (spawnY - landingY) + Board.lineClearScore(cleared));
+        lines.put(env, lines.get(env) + cleared);
+        placed.put(env, placed.get(env) + 1);
+        rewards.put(env, cleared);
+
+        spawn(env);
+    }
+
+    /**
+     * 产生下一个方块（均匀随机），出现的位置与{@link Board}相同，重叠时环境结束。
+     */
+    private void spawn(final int env) {
+        final long state = randomStates.get(env) + GOLDEN_GAMMA;
+        randomStates.put(env, state);
+        final int piece = (int) (((mix(state) >>> 32) * TETROMINOES.length) >>> 32);
+        final Tetrominoes tetrominoes = TETROMINOES[piece];
+
+        final int x = boardWidth / 2;
+        final int y = boardHight - 1 - tetrominoes.getInitialMaxY();
+        pieces.put(env, piece);
+        xs.put(env, x);
+        ys.put(env, y);
+        if (ShapeTable.of(tetrominoes, RotationDegree.Degree0).collides(rows, env * boardHight, boardWidth, boardHight, x,
+                y)) {
+            dones.put(env, (byte) 1);
+        }
+    }
+
+    /**
+     * 把方块固定到行位掩码中，与{@link Board}一样从最低的满行开始一次压缩消除所有满行，重新计算每列的表面高度。
+     *
+     * @return 消除的行数
+     */
+    private int lock(final int env, final ShapeTable shapeTable, final int x, final int y) {
+        final int rowBase = env * boardHight;
+        final int lowestFullRow = shapeTable.lock(rows, rowBase, boardHight, fullRowMask, x, y);
+
+        int top = boardHight;
+        if (lowestFullRow < boardHight) {
+            int write = lowestFullRow;
+            for (int read = lowestFullRow; read < boardHight; read++) {
+                final long row = rows.get(rowBase + read);
+                if (row != fullRowMask) {
+                    rows.put(rowBase + write, row);
+                    write++;
+                }
+            }
+            for (int empty = write; empty < boardHight; empty++) {
+                rows.put(rowBase + empty, 0L);
+            }
+            top = write;
+        }
+
+        updateHeights(env, top);
+        return boardHight - top;
+    }
+
+    /**
+     * 重新计算一个环境每列的表面高度： 从上往下找每列第一个已占用的方格。
+     */
+    private void updateHeights(final int env, final int top) {
+        final int rowBase = env * boardHight;
+        final int heightBase = env * boardWidth;
+        for (int x = 0; x < boardWidth; x++) {
+            heights.put(heightBase + x, 0);
+        }
+
+        long unresolved = fullRowMask;
+        for (int y = top - 1; (y >= 0) && (unresolved != 0); y--) {
+            long hit = rows.get(rowBase + y) & unresolved;
+            unresolved &= ~hit;
+            while (hit != 0) {
+                heights.put(heightBase + Long.numberOfTrailingZeros(hit), y + 1);
+                hit &= hit - 1;
+            }
+        }
+    }
+
+    private static long mix(final long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getBoardWidth() {
+        return boardWidth;
+    }
+
+    public int getBoardHight() {
+        return boardHight;
+    }
+
+    /**
+     * 动作的个数（角度数 × 宽度）。
+     */
+    public int getActionCount() {
+        return ROTATIONS * boardWidth;
+    }
+
+    /**
+     * 动作缓冲区（可写），每个环境一个动作。
+     */
+    public IntBuffer getActions() {
+        return actions.duplicate();
+    }
+
+    /**
+     * 观察值： 行位掩码（只读），下标为 环境 * boardHight + y。
+     */
+    public LongBuffer getRows() {
+        return rows.asReadOnlyBuffer();
+    }
+
+    /**
+     * 观察值： 每列的表面高度（只读），下标为 环境 * boardWidth + x。
+     */
+    public IntBuffer getHeights() {
+        return heights.asReadOnlyBuffer();
+    }
+
+    /**
+     * 观察值： 当前方块的类型序号（只读）。
+     */
+    public IntBuffer getPieces() {
+        return pieces.asReadOnlyBuffer();
+    }
+
+    /**
+     * 当前方块的原点x坐标（只读）。
+     */
+    public IntBuffer getXs() {
+        return xs.asReadOnlyBuffer();
+    }
+
+    /**
+     * 当前方块的原点y坐标（只读）。
+     */
+    public IntBuffer getYs() {
+        return ys.asReadOnlyBuffer();
+    }
+
+    /**
+     * 得分（只读）。
+     */
+    public IntBuffer getScores() {
+        return scores.asReadOnlyBuffer();
+    }
+
+    /**
+     * 本局消除的行数（只读）。
+     */
+    public IntBuffer getLines() {
+        return lines.asReadOnlyBuffer();
+    }
+
+    /**
+     * 本局已放置的方块数（只读）。
+     */
+    public IntBuffer getPlaced() {
+        return placed.asReadOnlyBuffer();
+    }
+
+    /**
+     * 上一步的奖励（消除的行数，只读）。
+     */
+    public FloatBuffer getRewards() {
+        return rewards.asReadOnlyBuffer();
+    }
+
+    /**
+     * 上一步后是否结束（1为结束，只读）。
+     */
+    public ByteBuffer getDones() {
+        return dones.asReadOnlyBuffer();
+    }
+}
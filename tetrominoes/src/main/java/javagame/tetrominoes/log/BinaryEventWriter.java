@@ -0,0 +1,34 @@
+package javagame.tetrominoes.log;
+
+import java.nio.channels.WritableByteChannel;
+
+import javagame.tetrominoes.enums.LogEvent;
+
+/**
+ * 紧凑的二进制输出，适合长时间、大量的事件。
+ * <p>
+ * 文件头： 魔数"TTEV"、版本号（1字节）、时间基准的墙上时间（毫秒，8字节）。<br>
+ * 每个事件： 相对时间基准的纳秒数（8字节）、事件类型序号（1字节）、该事件的字段（每个8字节，个数由事件类型决定）。
+ */
+class BinaryEventWriter extends ChannelEventWriter {
+    private static final int MAGIC = 0x54544556;
+    private static final byte VERSION = 1;
+    private static final LogEvent[] EVENTS = LogEvent.values();
+
+    BinaryEventWriter(final WritableByteChannel channel) {
+        super(channel);
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putLong(baseMillis);
+    }
+
+    @Override
+    protected void encode(final long nanoTime, final int eventIndex, final long[] fields, final int offset) {
+        final int fieldCount = EVENTS[eventIndex].getFieldCount();
+        buffer.putLong(nanoTime - baseNanos);
+        buffer.put((byte) eventIndex);
+        for (int i = 0; i < fieldCount; i++) {
+            buffer.putLong(fields[offset + i]);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package javagame.tetrominoes.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 写入{@link WritableByteChannel}的输出基类： 事件先编码到缓冲区，缓冲区快满或空闲时才写出。
+ */
+abstract class ChannelEventWriter implements EventWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // 一个事件编码后的最大字节数
+    protected static final int MAX_EVENT_BYTES = 512;
+
+    private final WritableByteChannel channel;
+    protected final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    // 时间基准： 输出开始时的墙上时间（毫秒）和System.nanoTime
+    protected final long baseMillis = System.currentTimeMillis();
+    protected final long baseNanos = System.nanoTime();
+
+    ChannelEventWriter(final WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    public final void write(final long nanoTime, final int event, final long[] fields, final int offset)
+            throws IOException {
+        if (buffer.remaining() < MAX_EVENT_BYTES) {
+            flush();
+        }
+        encode(nanoTime, event, fields, offset);
+    }
+
+    /**
+     * 把一个事件编码到缓冲区。
+     */
+    protected abstract void encode(long nanoTime, int event, long[] fields, int offset);
+
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,154 @@
+package javagame.tetrominoes.log;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javagame.tetrominoes.enums.LogEvent;
+import javagame.tetrominoes.enums.LogLevel;
+
+/**
+ * 异步的结构化事件日志。
+ * <p>
+ * 记录事件只是把几个整数放进无锁环形缓冲区，由后台线程批量格式化并输出，游戏线程上没有控制台I/O。
+ * 日志级别在启动时确定，热点路径上先判断 {@code XXX_ENABLED} 常量再调用{@link #log}，关闭时JIT会直接去掉整段代码。
+ * <p>
+ * 运行参数：
+ * <ul>
+ * <li>-Dtetrominoes.log.level=Trace|Debug|Info|Warn|Error|Off： 日志级别，缺省Off</li>
+ * <li>-Dtetrominoes.log.format=json|binary： 输出格式，缺省json（JSON Lines）</li>
+ * <li>-Dtetrominoes.log.file=文件： 输出文件，缺省为标准错误</li>
+ * <li>-Dtetrominoes.log.buffer=事件数： 环形缓冲区容量，缺省8192</li>
+ * </ul>
+ */
+public final class EventLog {
+    private static final LogLevel LEVEL = LogLevel.valueOf(System.getProperty("tetrominoes.log.level", "Off"));
+
+    public static final boolean TRACE_ENABLED = LEVEL.compareTo(LogLevel.Trace) <= 0;
+    public static final boolean DEBUG_ENABLED = LEVEL.compareTo(LogLevel.Debug) <= 0;
+    public static final boolean INFO_ENABLED = LEVEL.compareTo(LogLevel.Info) <= 0;
+    public static final boolean WARN_ENABLED = LEVEL.compareTo(LogLevel.Warn) <= 0;
+
+    // 输出线程空闲时的等待时间
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private EventLog() {
+    }
+
+    /**
+     * 指定级别的日志是否开启。
+     */
+    public static boolean isEnabled(final LogLevel level) {
+        return (level != LogLevel.Off) && (LEVEL.compareTo(level) <= 0);
+    }
+
+    public static void log(final LogEvent event, final long v0) {
+        log(event, v0, 0, 0, 0);
+    }
+
+    public static void log(final LogEvent event, final long v0, final long v1) {
+        log(event, v0, v1, 0, 0);
+    }
+
+    public static void log(final LogEvent event, final long v0, final long v1, final long v2) {
+        log(event, v0, v1, v2, 0);
+    }
+
+    /**
+     * 记录一个事件（任意线程），字段的含义由事件类型决定，多余的字段被忽略。缓冲区满时事件被丢弃。
+     */
+    public static void log(final LogEvent event, final long v0, final long v1, final long v2, final long v3) {
+        if (!isEnabled(event.getLevel())) {
+            return;
+        }
+        Output.BUFFER.offer(event, v0, v1, v2, v3);
+    }
+
+    /**
+     * 日志输出： 第一次记录事件时才初始化，日志关闭时不会创建缓冲区和线程。
+     */
+    private static final class Output implements Runnable {
+        static final EventRingBuffer BUFFER = new EventRingBuffer(
+                Integer.getInteger("tetrominoes.log.buffer", 8192));
+
+        static {
+            final Output output = new Output(createWriter());
+            final Thread thread = new Thread(output, "event-log");
+            thread.setDaemon(true);
+            thread.start();
+
+            // 退出时输出剩余的事件
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                public void run() {
+                    output.closing = true;
+                    LockSupport.unpark(thread);
+                    try {
+                        thread.join(TimeUnit.SECONDS.toMillis(1));
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, "event-log-shutdown"));
+        }
+
+        private final EventWriter writer;
+        private final long[] droppedFields = new long[LogEvent.MAX_FIELDS];
+        private volatile boolean closing;
+
+        private Output(final EventWriter writer) {
+            this.writer = writer;
+        }
+
+        private static EventWriter createWriter() {
+            final String file = System.getProperty("tetrominoes.log.file");
+            WritableByteChannel channel;
+            try {
+                channel = (file == null) ? Channels.newChannel(new FileOutputStream(FileDescriptor.err))
+                        : FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (final IOException e) {
+                System.err.println("无法打开日志文件 " + file + "，输出到标准错误: " + e);
+                channel = Channels.newChannel(new FileOutputStream(FileDescriptor.err));
+            }
+
+            if ("binary".equals(System.getProperty("tetrominoes.log.format"))) {
+                return new BinaryEventWriter(channel);
+            }
+            return new JsonLinesEventWriter(channel);
+        }
+
+        public void run() {
+            try {
+                while (true) {
+                    if (BUFFER.drain(writer) > 0) {
+                        continue;
+                    }
+
+                    // 空闲： 报告丢弃的事件数，写出缓冲的输出
+                    final long dropped = BUFFER.takeDropped();
+                    if (dropped > 0) {
+                        droppedFields[0] = dropped;
+                        writer.write(System.nanoTime(), LogEvent.EventsDropped.ordinal(), droppedFields, 0);
+                    }
+                    writer.flush();
+
+                    if (closing) {
+                        BUFFER.drain(writer);
+                        writer.flush();
+                        return;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (final IOException e) {
+                System.err.println("日志输出失败，停止输出: " + e);
+            }
+        }
+    }
+}
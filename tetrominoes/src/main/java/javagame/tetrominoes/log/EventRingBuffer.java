@@ -0,0 +1,103 @@
+package javagame.tetrominoes.log;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javagame.tetrominoes.enums.LogEvent;
+
+/**
+ * 无锁的多生产者/单消费者环形缓冲区，存放待输出的日志事件。
+ * <p>
+ * 事件按列存放在预先分配的基本类型数组中，记录一个事件不分配对象。生产者用CAS领取序号，写完字段后发布该槽位；
+ * 缓冲区满时丢弃事件并计数，游戏线程永远不会等待输出。
+ */
+final class EventRingBuffer {
+    private final int capacity;
+    private final int mask;
+
+    // 事件的时间戳（System.nanoTime）
+    private final long[] times;
+    // 事件类型序号
+    private final int[] events;
+    // 事件字段，下标为 槽位 * MAX_FIELDS + 字段序号
+    private final long[] fields;
+    // 槽位已发布的序号+1，消费者据此判断槽位是否写完
+    private final AtomicLongArray published;
+
+    // 下一个被领取的序号
+    private final AtomicLong claimed = new AtomicLong();
+    // 下一个被消费的序号
+    private final AtomicLong consumed = new AtomicLong();
+    // 丢弃的事件数
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity
+     *            容量，向上取为2的幂
+     */
+    EventRingBuffer(final int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        mask = this.capacity - 1;
+        times = new long[this.capacity];
+        events = new int[this.capacity];
+        fields = new long[this.capacity * LogEvent.MAX_FIELDS];
+        published = new AtomicLongArray(this.capacity);
+    }
+
+    /**
+     * 放入一个事件（任意线程）。
+     *
+     * @return 是否放入，缓冲区满时返回false
+     */
+    boolean offer(final LogEvent event, final long v0, final long v1, final long v2, final long v3) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if ((sequence - consumed.get()) >= capacity) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        final int slot = (int) (sequence & mask);
+        final int base = slot * LogEvent.MAX_FIELDS;
+        times[slot] = System.nanoTime();
+        events[slot] = event.ordinal();
+        fields[base] = v0;
+        fields[base + 1] = v1;
+        fields[base + 2] = v2;
+        fields[base + 3] = v3;
+        published.lazySet(slot, sequence + 1);
+        return true;
+    }
+
+    /**
+     * 把已发布的事件依次交给输出（只能在消费者线程中调用）。
+     *
+     * @return 输出的事件数
+     */
+    int drain(final EventWriter writer) throws IOException {
+        long sequence = consumed.get();
+        int count = 0;
+        while (true) {
+            final int slot = (int) (sequence & mask);
+            if (published.get(slot) != (sequence + 1)) {
+                return count;
+            }
+
+            writer.write(times[slot], events[slot], fields, slot * LogEvent.MAX_FIELDS);
+            sequence++;
+            count++;
+            // 释放槽位，生产者可以重用
+            consumed.lazySet(sequence);
+        }
+    }
+
+    /**
+     * 取出并清零丢弃的事件数。
+     */
+    long takeDropped() {
+        return dropped.getAndSet(0);
+    }
+}
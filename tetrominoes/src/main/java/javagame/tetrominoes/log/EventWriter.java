@@ -0,0 +1,28 @@
+package javagame.tetrominoes.log;
+
+import java.io.IOException;
+
+/**
+ * 日志事件的输出格式，只在日志输出线程中使用。
+ */
+interface EventWriter {
+
+    /**
+     * 输出一个事件。
+     *
+     * @param nanoTime
+     *            事件的时间戳（System.nanoTime）
+     * @param event
+     *            事件类型序号
+     * @param fields
+     *            字段数组
+     * @param offset
+     *            本事件字段在数组中的起始下标
+     */
+    void write(long nanoTime, int event, long[] fields, int offset) throws IOException;
+
+    /**
+     * 把缓冲的输出写出去。
+     */
+    void flush() throws IOException;
+}
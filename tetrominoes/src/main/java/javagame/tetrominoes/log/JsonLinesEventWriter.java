@@ -0,0 +1,110 @@
+package javagame.tetrominoes.log;
+
+import java.nio.channels.WritableByteChannel;
+
+import javagame.tetrominoes.enums.LatencyMetric;
+import javagame.tetrominoes.enums.LogEvent;
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDegree;
+import javagame.tetrominoes.enums.RotationDirection;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * JSON Lines格式的输出，每个事件一行，例如：
+ *
+ * <pre>
+ * {"time":1514736000123456,"level":"Debug","event":"ShapeSpawned","tetrominoes":"TShape","x":5,"y":20}
+ * </pre>
+ *
+ * time为微秒级的墙上时间。所有内容都是ASCII，直接按字节写入缓冲区，不经过字符串。
+ */
+class JsonLinesEventWriter extends ChannelEventWriter {
+    private static final LogEvent[] EVENTS = LogEvent.values();
+    private static final Tetrominoes[] TETROMINOES = Tetrominoes.values();
+    private static final RotationDegree[] DEGREES = RotationDegree.values();
+    private static final MovementDirection[] MOVEMENT_DIRECTIONS = MovementDirection.values();
+    private static final RotationDirection[] ROTATION_DIRECTIONS = RotationDirection.values();
+    private static final LatencyMetric[] LATENCY_METRICS = LatencyMetric.values();
+
+    // 数字转字节的临时数组
+    private final byte[] digits = new byte[20];
+
+    JsonLinesEventWriter(final WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    protected void encode(final long nanoTime, final int eventIndex, final long[] fields, final int offset) {
+        final LogEvent event = EVENTS[eventIndex];
+
+        putAscii("{\"time\":");
+        putNumber((baseMillis * 1000) + ((nanoTime - baseNanos) / 1000));
+        putAscii(",\"level\":\"");
+        putAscii(event.getLevel().name());
+        putAscii("\",\"event\":\"");
+        putAscii(event.name());
+        buffer.put((byte) '"');
+
+        for (int i = 0; i < event.getFieldCount(); i++) {
+            final String name = event.getFieldName(i);
+            buffer.put((byte) ',').put((byte) '"');
+            putAscii(name);
+            buffer.put((byte) '"').put((byte) ':');
+
+            final String enumName = enumName(name, fields[offset + i]);
+            if (enumName == null) {
+                putNumber(fields[offset + i]);
+            } else {
+                buffer.put((byte) '"');
+                putAscii(enumName);
+                buffer.put((byte) '"');
+            }
+        }
+        buffer.put((byte) '}').put((byte) '\n');
+    }
+
+    /**
+     * 枚举字段的名字，不是枚举字段时返回null。
+     */
+    private static String enumName(final String fieldName, final long value) {
+        final int index = (int) value;
+        switch (fieldName) {
+        case "tetrominoes":
+            return TETROMINOES[index].name();
+        case "degree":
+            return DEGREES[index].name();
+        case "movement":
+            return MOVEMENT_DIRECTIONS[index].name();
+        case "rotation":
+            return ROTATION_DIRECTIONS[index].name();
+        case "metric":
+            return LATENCY_METRICS[index].name();
+        default:
+            return null;
+        }
+    }
+
+    private void putAscii(final String text) {
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    private void putNumber(final long value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            if (value == Long.MIN_VALUE) {
+                putAscii("9223372036854775808");
+                return;
+            }
+        }
+
+        long remaining = Math.abs(value);
+        int position = digits.length;
+        do {
+            digits[--position] = (byte) ('0' + (remaining % 10));
+            remaining /= 10;
+        } while (remaining != 0);
+        buffer.put(digits, position, digits.length - position);
+    }
+}
@@ -0,0 +1,195 @@
+package javagame.tetrominoes.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import javagame.tetrominoes.enums.LatencyMetric;
+import javagame.tetrominoes.enums.LogEvent;
+import javagame.tetrominoes.log.EventLog;
+
+/**
+ * 游戏循环的运行指标： 每种{@link LatencyMetric}一个耗时直方图，以及移动次数、消除行数和它们的速率。
+ * <p>
+ * 耗时和计数由游戏循环线程记录（不分配对象）；按键到画面的延迟分两步记录：
+ * 循环线程执行按键时调用{@link #inputHandled(long)}，之后第一次画面绘制完成时调用{@link #frameRendered(long)}。
+ * 指标通过JMX发布（{@link #register(String)}），也可以由后台线程定期输出到事件日志（{@link #startReporting(long)}）。
+ */
+public class GameMetrics implements GameMetricsMBean {
+    // JMX对象名的域
+    private static final String DOMAIN = "javagame.tetrominoes";
+    // 没有等待绘制的按键
+    private static final long NO_INPUT = Long.MIN_VALUE;
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[LatencyMetric.values().length];
+
+    // 累计的移动次数、消除行数（由循环线程发布）
+    private volatile long totalMoves;
+    private volatile long totalLines;
+    // 最近一个报告周期的速率
+    private volatile double movesPerSecond;
+    private volatile double linesPerSecond;
+
+    // 最早的还没有反映到画面上的按键时间（只在循环线程中访问）
+    private long pendingInputNanos = NO_INPUT;
+
+    // 报告线程
+    private Thread reporter;
+
+    public GameMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * 记录一个耗时。
+     *
+     * @param metric
+     *            指标
+     * @param nanos
+     *            耗时（纳秒）
+     */
+    public void record(final LatencyMetric metric, final long nanos) {
+        histograms[metric.ordinal()].record(nanos);
+    }
+
+    /**
+     * 一个按键已在循环线程中执行（只在循环线程中调用）。
+     *
+     * @param pressedNanos
+     *            按键时的{@link System#nanoTime()}
+     */
+    public void inputHandled(final long pressedNanos) {
+        if (pendingInputNanos == NO_INPUT) {
+            pendingInputNanos = pressedNanos;
+        }
+    }
+
+    /**
+     * 一帧画面绘制完成（只在循环线程中调用），记录其中反映的最早一个按键的延迟。
+     *
+     * @param renderedNanos
+     *            绘制完成时的{@link System#nanoTime()}
+     */
+    public void frameRendered(final long renderedNanos) {
+        if (pendingInputNanos != NO_INPUT) {
+            record(LatencyMetric.InputLatency, renderedNanos - pendingInputNanos);
+            pendingInputNanos = NO_INPUT;
+        }
+    }
+
+    /**
+     * 发布累计的移动次数和消除行数（只在循环线程中调用）。
+     */
+    public void updateCounts(final long moves, final long lines) {
+        totalMoves = moves;
+        totalLines = lines;
+    }
+
+    public LatencyHistogram getHistogram(final LatencyMetric metric) {
+        return histograms[metric.ordinal()];
+    }
+
+    public double getMovesPerSecond() {
+        return movesPerSecond;
+    }
+
+    public double getLinesPerSecond() {
+        return linesPerSecond;
+    }
+
+    public long getTotalMoves() {
+        return totalMoves;
+    }
+
+    public long getTotalLines() {
+        return totalLines;
+    }
+
+    public void resetHistograms() {
+        for (final LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * 注册到平台的MBean服务器： 本对象为 javagame.tetrominoes:type=GameMetrics,name=名称，
+     * 每个直方图为 javagame.tetrominoes:type=Latency,name=名称,metric=指标。注册失败时只输出到标准错误。
+     *
+     * @param name
+     *            名称，区分同一进程中的多个游戏循环
+     */
+    public void register(final String name) {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, new ObjectName(DOMAIN + ":type=GameMetrics,name=" + name));
+            for (final LatencyMetric metric : LatencyMetric.values()) {
+                server.registerMBean(getHistogram(metric),
+                        new ObjectName(DOMAIN + ":type=Latency,name=" + name + ",metric=" + metric.name()));
+            }
+        } catch (final JMException e) {
+            System.err.println("无法注册JMX指标: " + e);
+        }
+    }
+
+    /**
+     * 启动报告线程（已启动时不做处理）： 每个周期计算移动和消行的速率，日志级别为Info时把各指标输出到事件日志。
+     *
+     * @param intervalMillis
+     *            报告周期（毫秒）
+     */
+    public synchronized void startReporting(final long intervalMillis) {
+        if (reporter != null) {
+            return;
+        }
+
+        reporter = new Thread(new Runnable() {
+            public void run() {
+                report(intervalMillis);
+            }
+        }, "metrics");
+        reporter.setDaemon(true);
+        reporter.start();
+    }
+
+    private void report(final long intervalMillis) {
+        long previousNanos = System.nanoTime();
+        long previousMoves = totalMoves;
+        long previousLines = totalLines;
+
+        while (true) {
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (final InterruptedException e) {
+                return;
+            }
+
+            final long now = System.nanoTime();
+            final long moves = totalMoves;
+            final long lines = totalLines;
+            final double seconds = (now - previousNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+            movesPerSecond = (moves - previousMoves) / seconds;
+            linesPerSecond = (lines - previousLines) / seconds;
+
+            if (EventLog.INFO_ENABLED) {
+                EventLog.log(LogEvent.Throughput, moves - previousMoves, lines - previousLines,
+                        TimeUnit.NANOSECONDS.toMillis(now - previousNanos));
+                for (final LatencyMetric metric : LatencyMetric.values()) {
+                    final LatencyHistogram histogram = getHistogram(metric);
+                    EventLog.log(LogEvent.Latency, metric.ordinal(),
+                            TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(50)),
+                            TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(99)),
+                            (long) histogram.getMaxMicros());
+                }
+            }
+
+            previousNanos = now;
+            previousMoves = moves;
+            previousLines = lines;
+        }
+    }
+}
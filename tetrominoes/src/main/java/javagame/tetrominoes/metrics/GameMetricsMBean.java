@@ -0,0 +1,25 @@
+package javagame.tetrominoes.metrics;
+
+/**
+ * 游戏循环指标的JMX管理接口。速率按最近一个报告周期计算。
+ */
+public interface GameMetricsMBean {
+    /**
+     * 每秒成功的移动次数（包括重力下落）。
+     */
+    double getMovesPerSecond();
+
+    /**
+     * 每秒消除的行数。
+     */
+    double getLinesPerSecond();
+
+    long getTotalMoves();
+
+    long getTotalLines();
+
+    /**
+     * 清空全部耗时直方图。
+     */
+    void resetHistograms();
+}
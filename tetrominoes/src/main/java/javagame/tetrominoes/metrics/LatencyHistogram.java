@@ -0,0 +1,135 @@
+package javagame.tetrominoes.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 耗时直方图（纳秒），按HDR直方图的方式分桶： 每个2的幂区间再等分为32个桶，相对误差约3%，最大记录约18分钟，更大的值计入最后一个桶。
+ * <p>
+ * 记录只是几次原子加法，不分配对象，可以在任意线程中同时记录和读取；读取到的是近似的即时值，{@link #reset()}与记录之间也不加锁。
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+    // 每个2的幂区间的桶数为 2^SUB_BUCKET_BITS
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    // 最大记录值的位数
+    private static final int MAX_VALUE_BITS = 40;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(bucketIndex(MAX_VALUE) + 1);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * 记录一个耗时。
+     *
+     * @param nanos
+     *            耗时（纳秒），负数按0记录
+     */
+    public void record(final long nanos) {
+        final long value = Math.min(Math.max(nanos, 0L), MAX_VALUE);
+        counts.incrementAndGet(bucketIndex(value));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(value);
+
+        long max = maxNanos.get();
+        while ((value > max) && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * 值所在的桶： 小于 2 * SUB_BUCKET_COUNT 的值每个值一个桶，更大的值按最高位右移到 [SUB_BUCKET_COUNT, 2 * SUB_BUCKET_COUNT) 后分桶。
+     */
+    private static int bucketIndex(final long value) {
+        if (value < (SUB_BUCKET_COUNT << 1)) {
+            return (int) value;
+        }
+
+        final int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return (shift * SUB_BUCKET_COUNT) + (int) (value >>> shift);
+    }
+
+    /**
+     * 桶的上限（桶中最大的值）。
+     */
+    private static long bucketUpperBound(final int index) {
+        if (index < (SUB_BUCKET_COUNT << 1)) {
+            return index;
+        }
+
+        final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        final long lowerBound = (long) (index - (shift * SUB_BUCKET_COUNT)) << shift;
+        return (lowerBound + (1L << shift)) - 1;
+    }
+
+    /**
+     * 指定百分位的耗时（纳秒），按桶的上限近似，并且不超过最大值。
+     *
+     * @param percentile
+     *            百分位，0到100
+     */
+    public long getValueAtPercentile(final double percentile) {
+        final long total = totalCount.get();
+        if (total == 0) {
+            return 0;
+        }
+
+        final long target = Math.max(1L, (long) Math.ceil((percentile / 100) * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(bucketUpperBound(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public double getMeanMicros() {
+        final long total = totalCount.get();
+        return (total == 0) ? 0 : toMicros(totalNanos.get() / (double) total);
+    }
+
+    public double getP50Micros() {
+        return toMicros(getValueAtPercentile(50));
+    }
+
+    public double getP90Micros() {
+        return toMicros(getValueAtPercentile(90));
+    }
+
+    public double getP99Micros() {
+        return toMicros(getValueAtPercentile(99));
+    }
+
+    public double getP999Micros() {
+        return toMicros(getValueAtPercentile(99.9));
+    }
+
+    public double getMaxMicros() {
+        return toMicros(maxNanos.get());
+    }
+
+    /**
+     * 清空全部记录。
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    private static double toMicros(final double nanos) {
+        return nanos / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+}
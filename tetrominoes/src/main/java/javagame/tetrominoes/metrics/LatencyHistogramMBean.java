@@ -0,0 +1,22 @@
+package javagame.tetrominoes.metrics;
+
+/**
+ * 耗时直方图的JMX管理接口，耗时单位为微秒。
+ */
+public interface LatencyHistogramMBean {
+    long getCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
@@ -0,0 +1,73 @@
+package javagame.tetrominoes.replay;
+
+import java.nio.ByteBuffer;
+
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDirection;
+
+/**
+ * 对局记录文件的二进制格式。
+ * <p>
+ * 文件头： 魔数"TTRP"、版本号（1字节）、数据板宽度和高度（变长整数）、随机方式序号（1字节）、种子（8字节）。<br>
+ * 事件： 每个事件一个变长整数，值为 (距上一事件的节拍数 &lt;&lt; 4) | 操作码，
+ * 操作码0~11为 移动方向序号 * 3 + 旋转方向序号，12为快速下落，15为结束。
+ * 操作间隔通常只有几个节拍，大部分事件只占1个字节。<br>
+ * 文件尾（紧跟结束事件）： 得分、消除的行数（变长整数），重放时用来校验。
+ * <p>
+ * 变长整数为无符号LEB128： 每字节低7位为数据，最高位为1表示后面还有字节。
+ */
+final class ReplayFormat {
+    static final int MAGIC = 0x54545250;
+    static final byte VERSION = 1;
+
+    // 操作码占用的位数
+    static final int CODE_BITS = 4;
+    static final int CODE_MASK = (1 << CODE_BITS) - 1;
+    // 快速下落的操作码
+    static final int CODE_DROP_DOWN = 12;
+    // 结束的操作码
+    static final int CODE_END = 15;
+
+    // 一个变长long的最大字节数
+    static final int MAX_VARINT_BYTES = 10;
+
+    private static final MovementDirection[] MOVEMENT_DIRECTIONS = MovementDirection.values();
+    private static final RotationDirection[] ROTATION_DIRECTIONS = RotationDirection.values();
+
+    private ReplayFormat() {
+    }
+
+    /**
+     * 移动操作的操作码。
+     */
+    static int moveCode(final MovementDirection movementDirection, final RotationDirection rotationDirection) {
+        return (movementDirection.ordinal() * ROTATION_DIRECTIONS.length) + rotationDirection.ordinal();
+    }
+
+    /**
+     * 是否为移动操作的操作码。
+     */
+    static boolean isMoveCode(final int code) {
+        return code < (MOVEMENT_DIRECTIONS.length * ROTATION_DIRECTIONS.length);
+    }
+
+    static MovementDirection movementDirectionOf(final int code) {
+        return MOVEMENT_DIRECTIONS[code / ROTATION_DIRECTIONS.length];
+    }
+
+    static RotationDirection rotationDirectionOf(final int code) {
+        return ROTATION_DIRECTIONS[code % ROTATION_DIRECTIONS.length];
+    }
+
+    /**
+     * 写入一个无符号变长整数。
+     */
+    static void putVarLong(final ByteBuffer buffer, final long value) {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            buffer.put((byte) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        buffer.put((byte) remaining);
+    }
+}
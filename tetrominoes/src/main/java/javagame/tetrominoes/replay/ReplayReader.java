@@ -0,0 +1,214 @@
+package javagame.tetrominoes.replay;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.Randomizer;
+import javagame.tetrominoes.enums.RotationDirection;
+
+/**
+ * 流式读取对局记录文件，格式见{@link ReplayFormat}。打开时读取文件头，之后用{@link #next()}逐个读取事件，不会把整个文件读入内存。
+ */
+public class ReplayReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Randomizer[] RANDOMIZERS = Randomizer.values();
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    // 文件头
+    private final int boardWidth;
+    private final int boardHight;
+    private final Randomizer randomizer;
+    private final long seed;
+
+    // 当前事件
+    private long tick;
+    private int code;
+    private int events;
+
+    // 文件尾
+    private boolean ended;
+    private int expectedScores;
+    private int expectedLines;
+
+    public ReplayReader(final Path file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        buffer.limit(0);
+
+        try {
+            if ((readInt() != ReplayFormat.MAGIC) || (readByte() != ReplayFormat.VERSION)) {
+                throw new IOException("不是对局记录文件: " + file);
+            }
+            boardWidth = (int) readVarLong();
+            boardHight = (int) readVarLong();
+            final int randomizerIndex = readByte();
+            if ((randomizerIndex < 0) || (randomizerIndex >= RANDOMIZERS.length)) {
+                throw new IOException("未知的随机方式: " + randomizerIndex);
+            }
+            randomizer = RANDOMIZERS[randomizerIndex];
+            seed = readLong();
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 读取下一个事件。
+     *
+     * @return 是否读到了操作事件，读到结束事件（同时读取文件尾）时返回false
+     * @throws EOFException
+     *             文件在结束事件之前就结束了（对局没有记录完）
+     */
+    public boolean next() throws IOException {
+        if (ended) {
+            return false;
+        }
+
+        final long value = readVarLong();
+        tick += value >>> ReplayFormat.CODE_BITS;
+        code = (int) (value & ReplayFormat.CODE_MASK);
+        if (code == ReplayFormat.CODE_END) {
+            expectedScores = (int) readVarLong();
+            expectedLines = (int) readVarLong();
+            ended = true;
+            return false;
+        }
+
+        if (!ReplayFormat.isMoveCode(code) && (code != ReplayFormat.CODE_DROP_DOWN)) {
+            throw new IOException("未知的操作码: " + code + " (" + file + ")");
+        }
+        events++;
+        return true;
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * 当前事件（或结束事件）的节拍数。
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * 当前事件是否为快速下落。
+     */
+    public boolean isDropDown() {
+        return code == ReplayFormat.CODE_DROP_DOWN;
+    }
+
+    public MovementDirection getMovementDirection() {
+        return ReplayFormat.movementDirectionOf(code);
+    }
+
+    public RotationDirection getRotationDirection() {
+        return ReplayFormat.rotationDirectionOf(code);
+    }
+
+    /**
+     * 已读取的操作事件数。
+     */
+    public int getEvents() {
+        return events;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getBoardWidth() {
+        return boardWidth;
+    }
+
+    public int getBoardHight() {
+        return boardHight;
+    }
+
+    public Randomizer getRandomizer() {
+        return randomizer;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * 是否已读到结束事件。
+     */
+    public boolean isEnded() {
+        return ended;
+    }
+
+    /**
+     * 记录的最终得分，读到结束事件后有效。
+     */
+    public int getExpectedScores() {
+        return expectedScores;
+    }
+
+    /**
+     * 记录的最终消除行数，读到结束事件后有效。
+     */
+    public int getExpectedLines() {
+        return expectedLines;
+    }
+
+    private int readByte() throws IOException {
+        if (!buffer.hasRemaining()) {
+            fill();
+        }
+        return buffer.get();
+    }
+
+    private int readInt() throws IOException {
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            value = (value << 8) | (readByte() & 0xFF);
+        }
+        return value;
+    }
+
+    private long readLong() throws IOException {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | (readByte() & 0xFF);
+        }
+        return value;
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < (7 * ReplayFormat.MAX_VARINT_BYTES); shift += 7) {
+            final int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("变长整数过长: " + file);
+    }
+
+    private void fill() throws IOException {
+        buffer.clear();
+        int read = 0;
+        while (read == 0) {
+            read = channel.read(buffer);
+        }
+        buffer.flip();
+        if (read < 0) {
+            throw new EOFException("对局记录不完整: " + file);
+        }
+    }
+}
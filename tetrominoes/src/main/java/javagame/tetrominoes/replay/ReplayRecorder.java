@@ -0,0 +1,144 @@
+package javagame.tetrominoes.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.data.PieceGenerator;
+import javagame.tetrominoes.engine.GameRecorder;
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDirection;
+
+/**
+ * 把对局记录为紧凑的二进制文件，每局一个文件，文件名为 game-开局时间-种子.tlog，格式见{@link ReplayFormat}。
+ * <p>
+ * 事件先写入直接缓冲区，缓冲区快满或对局结束时才通过{@link FileChannel}写盘，记录一个操作只是几次缓冲区写入。
+ * 在游戏引擎的线程中使用，不是线程安全的。未结束的对局在{@link #close()}时写盘，但没有文件尾，重放时视为未完成。
+ */
+public class ReplayRecorder implements GameRecorder, Closeable {
+    public static final String FILE_SUFFIX = ".tlog";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // 记录文件存放的目录
+    private final Path directory;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    // 当前对局的文件
+    private FileChannel channel;
+    private Path currentFile;
+    // 上一个事件的节拍数
+    private long lastTick;
+
+    public ReplayRecorder(final Path directory) {
+        this.directory = directory;
+    }
+
+    public void gameStarted(final Board board) {
+        closeChannel();
+
+        final PieceGenerator pieceGenerator = board.getPieceGenerator();
+        final long seed = pieceGenerator.getSeed();
+        try {
+            Files.createDirectories(directory);
+            currentFile = directory.resolve("game-" + System.currentTimeMillis() + "-" + Long.toHexString(seed)
+                    + FILE_SUFFIX);
+            channel = FileChannel.open(currentFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("无法创建对局记录文件", e);
+        }
+
+        lastTick = 0;
+        buffer.clear();
+        buffer.putInt(ReplayFormat.MAGIC);
+        buffer.put(ReplayFormat.VERSION);
+        ReplayFormat.putVarLong(buffer, board.getBoardWidth());
+        ReplayFormat.putVarLong(buffer, board.getBoardHight());
+        buffer.put((byte) pieceGenerator.getRandomizer().ordinal());
+        buffer.putLong(seed);
+    }
+
+    public void moved(final long tick, final MovementDirection movementDirection,
+            final RotationDirection rotationDirection) {
+        putEvent(tick, ReplayFormat.moveCode(movementDirection, rotationDirection));
+    }
+
+    public void droppedDown(final long tick) {
+        putEvent(tick, ReplayFormat.CODE_DROP_DOWN);
+    }
+
+    public void gameEnded(final long tick, final Board board) {
+        if (channel == null) {
+            return;
+        }
+
+        putEvent(tick, ReplayFormat.CODE_END);
+        ReplayFormat.putVarLong(buffer, board.getScores());
+        ReplayFormat.putVarLong(buffer, board.getLinesOfCleared());
+        closeChannel();
+    }
+
+    /**
+     * 把未结束对局已记录的事件写盘并关闭文件。
+     */
+    public void close() {
+        closeChannel();
+    }
+
+    /**
+     * 最近一局的记录文件。
+     */
+    public Path getCurrentFile() {
+        return currentFile;
+    }
+
+    private void putEvent(final long tick, final int code) {
+        if (channel == null) {
+            return;
+        }
+
+        // 留出一个事件加文件尾的空间
+        if (buffer.remaining() < (ReplayFormat.MAX_VARINT_BYTES * 3)) {
+            flush();
+        }
+        ReplayFormat.putVarLong(buffer, ((tick - lastTick) << ReplayFormat.CODE_BITS) | code);
+        lastTick = tick;
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("写对局记录失败: " + currentFile, e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            flush();
+        } finally {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                // 关闭失败不影响已写入的数据
+            }
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package javagame.tetrominoes.replay;
+
+import java.nio.file.Path;
+
+/**
+ * 一局重放的结果： 记录的和重放得到的得分、消除行数。
+ */
+public class ReplayResult {
+    private final Path file;
+    private final boolean finished;
+    private final int events;
+    private final long ticks;
+    private final int expectedScores;
+    private final int expectedLines;
+    private final int scores;
+    private final int lines;
+
+    public ReplayResult(final Path file, final boolean finished, final int events, final long ticks,
+            final int expectedScores, final int expectedLines, final int scores, final int lines) {
+        this.file = file;
+        this.finished = finished;
+        this.events = events;
+        this.ticks = ticks;
+        this.expectedScores = expectedScores;
+        this.expectedLines = expectedLines;
+        this.scores = scores;
+        this.lines = lines;
+    }
+
+    /**
+     * 记录完整并且重放得到的得分、消除行数和记录一致。
+     */
+    public boolean isVerified() {
+        return finished && (scores == expectedScores) && (lines == expectedLines);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * 记录是否完整（有文件尾）。
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public int getEvents() {
+        return events;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public int getExpectedScores() {
+        return expectedScores;
+    }
+
+    public int getExpectedLines() {
+        return expectedLines;
+    }
+
+    public int getScores() {
+        return scores;
+    }
+
+    public int getLines() {
+        return lines;
+    }
+
+    @Override
+    public String toString() {
+        if (!finished) {
+            return file + ": 记录不完整，重放到第" + ticks + "拍，得分 " + scores + "，消除 " + lines + " 行";
+        }
+        return file + ": " + (isVerified() ? "一致" : "不一致") + "，得分 " + scores + "/" + expectedScores + "，消除 "
+                + lines + "/" + expectedLines + " 行，" + events + " 个操作，" + ticks + " 拍";
+    }
+}
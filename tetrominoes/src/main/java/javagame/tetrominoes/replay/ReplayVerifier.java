@@ -0,0 +1,130 @@
+package javagame.tetrominoes.replay;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量校验对局记录： 并行重放指定的文件（目录下的所有 .tlog 文件），输出不一致的对局和每秒重放的局数。
+ * <p>
+ * 无法读取或格式错误的文件计为失败并输出路径，不影响其他文件的校验。有不一致或失败的对局时退出码为1。
+ * <p>
+ * 用法： java -cp tetrominoes.jar javagame.tetrominoes.replay.ReplayVerifier 文件或目录...
+ */
+public class ReplayVerifier {
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("用法: ReplayVerifier 文件或目录...");
+            System.exit(2);
+        }
+
+        final List<Path> files = new ArrayList<Path>();
+        for (final String arg : args) {
+            final Path path = Paths.get(arg);
+            if (Files.isDirectory(path)) {
+                Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+                        if (file.toString().endsWith(ReplayRecorder.FILE_SUFFIX)) {
+                            files.add(file);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } else {
+                files.add(path);
+            }
+        }
+
+        final ReplayTask task = new ReplayTask(new Replayer(), files, 0, files.size());
+        final long start = System.nanoTime();
+        ForkJoinPool.commonPool().invoke(task);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("重放 %d 局，不一致 %d 局，不完整 %d 局，失败 %d 局，用时 %.2f 秒，%.0f 局/秒%n", files.size(),
+                task.mismatches.get(), task.unfinished.get(), task.failures.get(), seconds, files.size() / seconds);
+        if ((task.mismatches.get() > 0) || (task.failures.get() > 0)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 重放文件列表中的一段，段较长时对半分成两个子任务，计数由所有子任务共享。
+     */
+    private static class ReplayTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Replayer replayer;
+        private final List<Path> files;
+        private final int from;
+        private final int to;
+
+        private final AtomicInteger mismatches;
+        private final AtomicInteger unfinished;
+        private final AtomicInteger failures;
+
+        ReplayTask(final Replayer replayer, final List<Path> files, final int from, final int to) {
+            this(replayer, files, from, to, new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+        }
+
+        private ReplayTask(final Replayer replayer, final List<Path> files, final int from, final int to,
+                final AtomicInteger mismatches, final AtomicInteger unfinished, final AtomicInteger failures) {
+            this.replayer = replayer;
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.mismatches = mismatches;
+            this.unfinished = unfinished;
+            this.failures = failures;
+        }
+
+        @Override
+        protected void compute() {
+            if ((to - from) > 1) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new ReplayTask(replayer, files, from, middle, mismatches, unfinished, failures),
+                        new ReplayTask(replayer, files, middle, to, mismatches, unfinished, failures));
+                return;
+            }
+
+            for (int i = from; i < to; i++) {
+                verify(files.get(i));
+            }
+        }
+
+        private void verify(final Path file) {
+            final ReplayResult result;
+            try {
+                result = replayer.replay(file);
+            } catch (final IOException e) {
+                fail(file, e);
+                return;
+            } catch (final RuntimeException e) {
+                fail(file, e);
+                return;
+            }
+
+            if (!result.isFinished()) {
+                unfinished.incrementAndGet();
+            } else if (!result.isVerified()) {
+                mismatches.incrementAndGet();
+                System.out.println(result);
+            }
+        }
+
+        private void fail(final Path file, final Exception e) {
+            failures.incrementAndGet();
+            System.out.println("无法重放 " + file + ": " + e);
+        }
+    }
+}
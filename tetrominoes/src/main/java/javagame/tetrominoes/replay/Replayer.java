@@ -0,0 +1,64 @@
+package javagame.tetrominoes.replay;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.engine.GameEngine;
+import javagame.tetrominoes.enums.GameState;
+
+/**
+ * 无界面、不计时地重放对局记录： 按种子重建方块序列，在记录的节拍上依次执行操作，最后与记录的得分、消除行数对比。
+ * <p>
+ * 每次重放使用独立的数据板和引擎，不同的文件可以在多个线程中同时重放。
+ */
+public class Replayer {
+
+    /**
+     * 重放一个对局记录文件。
+     *
+     * @param file
+     *            对局记录文件
+     * @return 重放结果
+     * @throws IOException
+     *             文件无法读取或格式错误
+     */
+    public ReplayResult replay(final Path file) throws IOException {
+        try (ReplayReader reader = new ReplayReader(file)) {
+            final Board board = new Board(reader.getBoardWidth(), reader.getBoardHight(),
+                    reader.getRandomizer().create(reader.getSeed()));
+            final GameEngine engine = new GameEngine(board);
+            engine.start(reader.getSeed());
+
+            boolean finished = true;
+            try {
+                while (reader.next()) {
+                    advanceTo(engine, reader.getTick());
+                    if (reader.isDropDown()) {
+                        engine.dropDown();
+                    } else {
+                        engine.tryToMove(reader.getMovementDirection(), reader.getRotationDirection());
+                    }
+                }
+                advanceTo(engine, reader.getTick());
+            } catch (final EOFException e) {
+                // 对局没有记录完，重放已有的部分
+                finished = false;
+            }
+
+            return new ReplayResult(file, finished, reader.getEvents(), engine.getTicks(),
+                    reader.getExpectedScores(), reader.getExpectedLines(), board.getScores(),
+                    board.getLinesOfCleared());
+        }
+    }
+
+    /**
+     * 执行下落节拍，直到引擎的节拍数到达指定值（或游戏结束）。
+     */
+    private static void advanceTo(final GameEngine engine, final long tick) {
+        while ((engine.getTicks() < tick) && (engine.getGameState() == GameState.Running)) {
+            engine.tick();
+        }
+    }
+}
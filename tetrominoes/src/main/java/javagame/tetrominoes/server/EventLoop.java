@@ -0,0 +1,273 @@
+package javagame.tetrominoes.server;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.enums.GravityCurve;
+import javagame.tetrominoes.enums.Randomizer;
+
+/**
+ * 事件循环： 一个线程用一个{@link Selector}承载许多局游戏，处理输入、按各局的重力间隔定时下落、发送状态更新。
+ * <p>
+ * 定时用按下一次下落时间排序的优先队列，没有到期的下落时线程阻塞在select上，空闲的对局不占用CPU。
+ * 统计数据只由循环线程写，其他线程只读。
+ * <p>
+ * 一个连接出错（连接后立即被重置、读写失败、引擎抛出异常）时只关闭该连接的对局，不影响同一循环上的其他对局。
+ */
+final class EventLoop implements Runnable {
+    private final Selector selector;
+    private final GravityCurve gravityCurve;
+    private final Randomizer randomizer;
+
+    // 新连接，由接受线程放入
+    private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<SocketChannel>();
+    // 按下一次下落时间排序的定时队列
+    private final PriorityQueue<GameSession> timers = new PriorityQueue<GameSession>(1024,
+            new Comparator<GameSession>() {
+                public int compare(final GameSession s1, final GameSession s2) {
+                    return Long.compare(s1.getNextTickNanos(), s2.getNextTickNanos());
+                }
+            });
+    // 有新状态待发送的对局
+    private final ArrayDeque<GameSession> updates = new ArrayDeque<GameSession>();
+
+    private volatile boolean running = true;
+    private Thread thread;
+
+    // 统计数据
+    private volatile int sessions;
+    private volatile long ticks;
+    private volatile long inputs;
+    private volatile long framesSent;
+
+    EventLoop(final GravityCurve gravityCurve, final Randomizer randomizer) throws IOException {
+        this.selector = Selector.open();
+        this.gravityCurve = gravityCurve;
+        this.randomizer = randomizer;
+    }
+
+    void start(final String name) {
+        thread = new Thread(this, name);
+        thread.start();
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * 把新连接交给这个循环（任意线程）。
+     */
+    void register(final SocketChannel channel) {
+        pendingChannels.add(channel);
+        selector.wakeup();
+    }
+
+    public void run() {
+        try {
+            while (running) {
+                final long now = System.nanoTime();
+                final GameSession next = timers.peek();
+                if (next == null) {
+                    selector.select();
+                } else if (next.getNextTickNanos() > now) {
+                    selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(next.getNextTickNanos() - now)));
+                } else {
+                    selector.selectNow();
+                }
+
+                acceptPending();
+                processKeys();
+                runTimers(System.nanoTime());
+                sendUpdates();
+            }
+        } catch (final IOException e) {
+            System.err.println(Thread.currentThread().getName() + " 异常退出: " + e);
+        } finally {
+            for (final SelectionKey key : selector.keys()) {
+                ((GameSession) key.attachment()).close();
+            }
+            try {
+                selector.close();
+            } catch (final IOException e) {
+                // 忽略
+            }
+        }
+    }
+
+    private void acceptPending() {
+        SocketChannel channel;
+        while ((channel = pendingChannels.poll()) != null) {
+            final GameSession session;
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+
+                session = new GameSession(channel, new Board(randomizer.create(System.nanoTime())));
+                session.setKey(channel.register(selector, SelectionKey.OP_READ, session));
+            } catch (final IOException e) {
+                // 连接后立即被重置等，只关闭这个连接
+                closeChannel(channel);
+                continue;
+            }
+            sessions++;
+            // 连接后立即发送初始状态
+            queueUpdate(session);
+        }
+    }
+
+    private static void closeChannel(final SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (final IOException e) {
+            // 忽略
+        }
+    }
+
+    private void processKeys() {
+        final Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+        while (iterator.hasNext()) {
+            final SelectionKey key = iterator.next();
+            iterator.remove();
+
+            final GameSession session = (GameSession) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    final long before = session.getEngine().getVersion();
+                    final int read = session.read();
+                    if (read < 0) {
+                        closeSession(session);
+                        continue;
+                    }
+                    inputs += read;
+                    schedule(session, System.nanoTime());
+                    if (session.getEngine().getVersion() != before) {
+                        queueUpdate(session);
+                    }
+                }
+
+                if (key.isValid() && key.isWritable()) {
+                    queueUpdate(session);
+                }
+            } catch (final IOException e) {
+                closeSession(session);
+            } catch (final RuntimeException e) {
+                failSession(session, e);
+            }
+        }
+    }
+
+    /**
+     * 执行所有到期的重力下落。
+     */
+    private void runTimers(final long now) {
+        GameSession session;
+        while (((session = timers.peek()) != null) && (session.getNextTickNanos() <= now)) {
+            timers.poll();
+            session.setScheduled(false);
+            if (session.isClosed() || !session.isRunning()) {
+                continue;
+            }
+
+            try {
+                session.getEngine().tick();
+                ticks++;
+                queueUpdate(session);
+                schedule(session, now);
+            } catch (final RuntimeException e) {
+                failSession(session, e);
+            }
+        }
+    }
+
+    /**
+     * 对局在运行并且没有定时时，按当前等级的下落间隔加入定时队列。
+     */
+    private void schedule(final GameSession session, final long now) {
+        if (session.isScheduled() || !session.isRunning()) {
+            return;
+        }
+
+        session.setNextTickNanos(now + gravityCurve.getIntervalNanos(session.getEngine().getLevel()));
+        session.setScheduled(true);
+        timers.add(session);
+    }
+
+    private void queueUpdate(final GameSession session) {
+        if (!session.isQueued()) {
+            session.setQueued(true);
+            updates.add(session);
+        }
+    }
+
+    /**
+     * 发送待发送的状态更新。客户端接收慢时关注可写事件，可写后再发送最新的状态。
+     */
+    private void sendUpdates() {
+        GameSession session;
+        while ((session = updates.poll()) != null) {
+            session.setQueued(false);
+            if (session.isClosed()) {
+                continue;
+            }
+
+            try {
+                final long before = session.getFramesSent();
+                final boolean flushed = session.flush();
+                framesSent += session.getFramesSent() - before;
+                final SelectionKey key = session.getKey();
+                key.interestOps(flushed ? SelectionKey.OP_READ : (SelectionKey.OP_READ | SelectionKey.OP_WRITE));
+            } catch (final IOException e) {
+                closeSession(session);
+            } catch (final RuntimeException e) {
+                failSession(session, e);
+            }
+        }
+    }
+
+    private void closeSession(final GameSession session) {
+        if (!session.isClosed()) {
+            session.close();
+            sessions--;
+        }
+    }
+
+    /**
+     * 对局处理中出现意外的异常（程序错误）： 输出后只关闭这一局。
+     */
+    private void failSession(final GameSession session, final RuntimeException e) {
+        System.err.println(Thread.currentThread().getName() + " 对局异常，关闭连接: " + e);
+        closeSession(session);
+    }
+
+    int getSessions() {
+        return sessions;
+    }
+
+    long getTicks() {
+        return ticks;
+    }
+
+    long getInputs() {
+        return inputs;
+    }
+
+    long getFramesSent() {
+        return framesSent;
+    }
+
+    Thread getThread() {
+        return thread;
+    }
+}
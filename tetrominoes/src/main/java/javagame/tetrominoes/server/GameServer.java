@@ -0,0 +1,163 @@
+package javagame.tetrominoes.server;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import javagame.tetrominoes.enums.GravityCurve;
+import javagame.tetrominoes.enums.Randomizer;
+
+/**
+ * 无界面的多局对局服务器： 每个TCP连接是一局游戏，所有对局分配在少量的{@link EventLoop}线程上（缺省每个CPU核一个），
+ * 不为每局游戏创建线程。协议见{@link ServerProtocol}。
+ * <p>
+ * 用法： java -cp tetrominoes.jar javagame.tetrominoes.server.GameServer [端口] [循环线程数]<br>
+ * 重力曲线和随机方式使用和界面相同的运行参数（tetrominoes.gravity、tetrominoes.randomizer）。
+ * 服务器每5秒输出一次统计： 对局数、每秒下落/操作/发送帧数、事件循环占用的CPU核数和每核承载的对局数。
+ */
+public class GameServer {
+    public static final int DEFAULT_PORT = 7777;
+
+    private static final long STATS_INTERVAL_SECONDS = 5;
+
+    private final InetSocketAddress address;
+    private final EventLoop[] loops;
+
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private volatile boolean running;
+
+    public GameServer(final InetSocketAddress address, final int loopCount, final GravityCurve gravityCurve,
+            final Randomizer randomizer) throws IOException {
+        this.address = address;
+        this.loops = new EventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new EventLoop(gravityCurve, randomizer);
+        }
+    }
+
+    /**
+     * 启动事件循环和接受连接的线程。
+     */
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.bind(address, 1024);
+
+        running = true;
+        for (int i = 0; i < loops.length; i++) {
+            loops[i].start("game-server-loop-" + i);
+        }
+
+        acceptor = new Thread(new Runnable() {
+            public void run() {
+                accept();
+            }
+        }, "game-server-acceptor");
+        acceptor.start();
+    }
+
+    /**
+     * 接受连接，依次轮流分配给事件循环。
+     */
+    private void accept() {
+        int next = 0;
+        while (running) {
+            try {
+                final SocketChannel channel = serverChannel.accept();
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            } catch (final ClosedChannelException e) {
+                return;
+            } catch (final IOException e) {
+                System.err.println("接受连接失败: " + e);
+            }
+        }
+    }
+
+    /**
+     * 停止服务器，关闭所有连接。
+     */
+    public void shutdown() {
+        running = false;
+        try {
+            serverChannel.close();
+        } catch (final IOException e) {
+            // 忽略
+        }
+        for (final EventLoop loop : loops) {
+            loop.shutdown();
+        }
+    }
+
+    /**
+     * 当前的对局数。
+     */
+    public int getSessions() {
+        int sessions = 0;
+        for (final EventLoop loop : loops) {
+            sessions += loop.getSessions();
+        }
+        return sessions;
+    }
+
+    /**
+     * 定期输出统计数据（阻塞当前线程）。
+     */
+    public void printStatistics() throws InterruptedException {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        long previousTime = System.nanoTime();
+        long previousCpu = 0;
+        long previousTicks = 0;
+        long previousInputs = 0;
+        long previousFrames = 0;
+
+        while (running) {
+            TimeUnit.SECONDS.sleep(STATS_INTERVAL_SECONDS);
+
+            long cpu = 0;
+            long ticks = 0;
+            long inputs = 0;
+            long frames = 0;
+            for (final EventLoop loop : loops) {
+                final long threadCpu = threadMXBean.getThreadCpuTime(loop.getThread().getId());
+                cpu += Math.max(0, threadCpu);
+                ticks += loop.getTicks();
+                inputs += loop.getInputs();
+                frames += loop.getFramesSent();
+            }
+
+            final long now = System.nanoTime();
+            final double seconds = (now - previousTime) / 1e9;
+            final double cores = (cpu - previousCpu) / 1e9 / seconds;
+            final int sessions = getSessions();
+            System.out.printf("对局: %d  下落: %.0f/s  操作: %.0f/s  发送: %.0f帧/s  CPU: %.2f核  每核对局: %.0f%n", sessions,
+                    (ticks - previousTicks) / seconds, (inputs - previousInputs) / seconds,
+                    (frames - previousFrames) / seconds, cores, (cores > 0) ? (sessions / cores) : 0.0);
+
+            previousTime = now;
+            previousCpu = cpu;
+            previousTicks = ticks;
+            previousInputs = inputs;
+            previousFrames = frames;
+        }
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        final int loopCount = (args.length > 1) ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        final GravityCurve gravityCurve = GravityCurve.valueOf(System.getProperty("tetrominoes.gravity", "Stepped"));
+        final Randomizer randomizer = Randomizer.valueOf(System.getProperty("tetrominoes.randomizer", "Uniform"));
+
+        final GameServer server = new GameServer(new InetSocketAddress(port), loopCount, gravityCurve, randomizer);
+        server.start();
+        System.out.println("对局服务器已启动，端口 " + port + "，事件循环 " + loopCount + " 个");
+        server.printStatistics();
+    }
+}
@@ -0,0 +1,203 @@
+package javagame.tetrominoes.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.data.BoardCodec;
+import javagame.tetrominoes.engine.GameEngine;
+import javagame.tetrominoes.enums.GameState;
+
+/**
+ * 服务器上的一局游戏： 一个连接、一个游戏引擎、收发缓冲区和下一次下落的时间。只在所属的事件循环线程中访问。
+ * <p>
+ * 背压： 发送缓冲区只放一帧，上一帧没有发完之前不编码新的帧，慢的客户端只会收到更少的（最新的）状态，服务器不会为它积压数据。
+ * 接收缓冲区大小固定，每轮循环最多处理一缓冲区的操作，一个连接刷屏不会饿死同一循环中的其他对局。
+ */
+final class GameSession {
+    private static final int INPUT_BUFFER_SIZE = 256;
+
+    private final SocketChannel channel;
+    private final GameEngine engine;
+    private final ByteBuffer input = ByteBuffer.allocateDirect(INPUT_BUFFER_SIZE);
+    private final ByteBuffer output;
+
+    private SelectionKey key;
+    // 下一次重力下落的时间（System.nanoTime），以及是否已经在定时队列中
+    private long nextTickNanos;
+    private boolean scheduled;
+    // 是否已经在待发送队列中
+    private boolean queued;
+    // 已发送（或正在发送）的引擎版本
+    private long sentVersion = -1;
+    private boolean closed;
+    // 已编码发送的帧数
+    private long framesSent;
+
+    GameSession(final SocketChannel channel, final Board board) {
+        this.channel = channel;
+        this.engine = new GameEngine(board);
+        this.output = ByteBuffer.allocateDirect(ServerProtocol.FRAME_HEADER_SIZE
+                + ServerProtocol.SNAPSHOT_PREFIX_SIZE + BoardCodec.encodedSize(board));
+        output.limit(0);
+    }
+
+    /**
+     * 读取并执行客户端的操作。
+     *
+     * @return 执行的操作数，连接已关闭时返回-1
+     */
+    int read() throws IOException {
+        input.clear();
+        final int read = channel.read(input);
+        if (read < 0) {
+            return -1;
+        }
+
+        input.flip();
+        while (input.hasRemaining()) {
+            execute(input.get() & 0xFF);
+        }
+        return read;
+    }
+
+    private void execute(final int code) {
+        if (ServerProtocol.isMoveCode(code)) {
+            engine.tryToMove(ServerProtocol.movementDirectionOf(code), ServerProtocol.rotationDirectionOf(code));
+            return;
+        }
+
+        switch (code) {
+        case ServerProtocol.DROP_DOWN:
+            engine.dropDown();
+            break;
+        case ServerProtocol.START:
+            engine.stop();
+            engine.start();
+            break;
+        case ServerProtocol.PAUSE:
+            engine.pause();
+            break;
+        case ServerProtocol.STOP:
+            engine.stop();
+            break;
+        default:
+            // 未知的操作，忽略
+            break;
+        }
+    }
+
+    /**
+     * 是否有还没有发送的新状态。
+     */
+    boolean hasUpdate() {
+        return engine.getVersion() != sentVersion;
+    }
+
+    /**
+     * 发送： 先发完上一帧，发完后如果有新状态，编码最新状态并发送。
+     *
+     * @return 是否全部发完（false表示客户端接收慢，需要等待可写）
+     */
+    boolean flush() throws IOException {
+        if (output.hasRemaining()) {
+            channel.write(output);
+            if (output.hasRemaining()) {
+                return false;
+            }
+        }
+
+        if (!hasUpdate()) {
+            return true;
+        }
+
+        encodeSnapshot();
+        channel.write(output);
+        return !output.hasRemaining();
+    }
+
+    private void encodeSnapshot() {
+        final Board board = engine.getBoard();
+        sentVersion = engine.getVersion();
+        framesSent++;
+
+        output.clear();
+        final int length = output.capacity() - 2;
+        output.putShort((short) length);
+        output.put((byte) ServerProtocol.FRAME_SNAPSHOT);
+        output.put((byte) engine.getGameState().ordinal());
+        output.putInt(engine.getLevel());
+        BoardCodec.encode(board, output);
+        output.flip();
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (final IOException e) {
+            // 忽略
+        }
+    }
+
+    boolean isRunning() {
+        return engine.getGameState() == GameState.Running;
+    }
+
+    GameEngine getEngine() {
+        return engine;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    SelectionKey getKey() {
+        return key;
+    }
+
+    void setKey(final SelectionKey key) {
+        this.key = key;
+    }
+
+    long getNextTickNanos() {
+        return nextTickNanos;
+    }
+
+    void setNextTickNanos(final long nextTickNanos) {
+        this.nextTickNanos = nextTickNanos;
+    }
+
+    boolean isScheduled() {
+        return scheduled;
+    }
+
+    void setScheduled(final boolean scheduled) {
+        this.scheduled = scheduled;
+    }
+
+    boolean isQueued() {
+        return queued;
+    }
+
+    void setQueued(final boolean queued) {
+        this.queued = queued;
+    }
+
+    long getFramesSent() {
+        return framesSent;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+}
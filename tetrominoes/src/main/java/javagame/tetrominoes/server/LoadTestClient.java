@@ -0,0 +1,203 @@
+package javagame.tetrominoes.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import javagame.tetrominoes.enums.GameState;
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDirection;
+
+/**
+ * 对局服务器的压力测试客户端： 单线程用一个{@link Selector}打开大量连接，每局按指定频率随机发送操作，游戏结束后重新开始，
+ * 统计收到的状态帧。与服务器输出的CPU占用一起可以得出每核承载的对局数。
+ * <p>
+ * 用法： java -cp tetrominoes.jar javagame.tetrominoes.server.LoadTestClient [主机] [端口] [对局数] [秒数] [每局每秒操作数]
+ */
+public class LoadTestClient {
+    private static final int READ_BUFFER_SIZE = 4096;
+    // 发送操作的时间粒度
+    private static final long ROUND_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final GameState[] GAME_STATES = GameState.values();
+    private static final MovementDirection[] MOVEMENT_DIRECTIONS = MovementDirection.values();
+    private static final RotationDirection[] ROTATION_DIRECTIONS = RotationDirection.values();
+
+    /**
+     * 一个连接（一局）的客户端状态。
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        final ByteBuffer writeBuffer = ByteBuffer.allocate(1);
+        long nextInputNanos;
+        boolean connected;
+
+        Connection(final SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final SplittableRandom random = new SplittableRandom(20180101L);
+    private final long inputIntervalNanos;
+
+    private long frames;
+    private long bytes;
+    private long inputs;
+    private long droppedInputs;
+    private long restarts;
+
+    private LoadTestClient(final double inputsPerSecond) {
+        inputIntervalNanos = (inputsPerSecond <= 0) ? Long.MAX_VALUE : (long) (1e9 / inputsPerSecond);
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final String host = (args.length > 0) ? args[0] : "127.0.0.1";
+        final int port = (args.length > 1) ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+        final int games = (args.length > 2) ? Integer.parseInt(args[2]) : 1000;
+        final int seconds = (args.length > 3) ? Integer.parseInt(args[3]) : 30;
+        final double inputsPerSecond = (args.length > 4) ? Double.parseDouble(args[4]) : 5;
+
+        new LoadTestClient(inputsPerSecond).run(new InetSocketAddress(host, port), games, seconds);
+    }
+
+    private void run(final InetSocketAddress address, final int games, final int seconds) throws IOException {
+        final Selector selector = Selector.open();
+        final List<Connection> connections = new ArrayList<Connection>(games);
+        for (int i = 0; i < games; i++) {
+            final SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            final Connection connection = new Connection(channel);
+            channel.register(selector, SelectionKey.OP_CONNECT, connection);
+            channel.connect(address);
+            connections.add(connection);
+        }
+
+        final long start = System.nanoTime();
+        final long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long nextReport = start + TimeUnit.SECONDS.toNanos(1);
+        long reportedFrames = 0;
+        long nextRound = start;
+
+        while (System.nanoTime() < end) {
+            selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextRound - System.nanoTime())));
+
+            final Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+            while (iterator.hasNext()) {
+                final SelectionKey key = iterator.next();
+                iterator.remove();
+                final Connection connection = (Connection) key.attachment();
+                try {
+                    if (key.isConnectable() && connection.channel.finishConnect()) {
+                        connection.connected = true;
+                        connection.nextInputNanos = System.nanoTime() + random.nextLong(inputIntervalNanos);
+                        key.interestOps(SelectionKey.OP_READ);
+                        send(connection, ServerProtocol.START);
+                    } else if (key.isReadable()) {
+                        read(connection);
+                    }
+                } catch (final IOException e) {
+                    key.cancel();
+                    connection.connected = false;
+                    connection.channel.close();
+                }
+            }
+
+            final long now = System.nanoTime();
+            if (now >= nextRound) {
+                sendInputs(connections, now);
+                nextRound = now + ROUND_NANOS;
+            }
+
+            if (now >= nextReport) {
+                int connected = 0;
+                for (final Connection connection : connections) {
+                    if (connection.connected) {
+                        connected++;
+                    }
+                }
+                System.out.printf("连接: %d  收到: %d帧/s  累计操作: %d（丢弃 %d）  重新开始: %d%n", connected,
+                        frames - reportedFrames, inputs, droppedInputs, restarts);
+                reportedFrames = frames;
+                nextReport += TimeUnit.SECONDS.toNanos(1);
+            }
+        }
+
+        final double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("共 %.1f 秒： 收到 %d 帧（%.0f帧/s，%.1f MB），发送操作 %d 个（%.0f/s），重新开始 %d 局%n", elapsed, frames,
+                frames / elapsed, bytes / 1e6, inputs, inputs / elapsed, restarts);
+
+        for (final Connection connection : connections) {
+            connection.channel.close();
+        }
+        selector.close();
+    }
+
+    /**
+     * 到时间的对局各发送一个随机操作。
+     */
+    private void sendInputs(final List<Connection> connections, final long now) throws IOException {
+        for (final Connection connection : connections) {
+            if (!connection.connected || (now < connection.nextInputNanos)) {
+                continue;
+            }
+
+            connection.nextInputNanos = now + inputIntervalNanos;
+            final int code = (random.nextInt(10) == 0) ? ServerProtocol.DROP_DOWN
+                    : ServerProtocol.moveCode(MOVEMENT_DIRECTIONS[random.nextInt(MOVEMENT_DIRECTIONS.length)],
+                            ROTATION_DIRECTIONS[random.nextInt(ROTATION_DIRECTIONS.length)]);
+            send(connection, code);
+        }
+    }
+
+    private void send(final Connection connection, final int code) throws IOException {
+        connection.writeBuffer.clear();
+        connection.writeBuffer.put((byte) code).flip();
+        if (connection.channel.write(connection.writeBuffer) == 0) {
+            // 发送缓冲区满，丢弃这个操作
+            droppedInputs++;
+            return;
+        }
+        inputs++;
+    }
+
+    /**
+     * 读取并解析状态帧，游戏结束时重新开始。
+     */
+    private void read(final Connection connection) throws IOException {
+        final ByteBuffer buffer = connection.readBuffer;
+        final int read = connection.channel.read(buffer);
+        if (read < 0) {
+            throw new IOException("服务器关闭了连接");
+        }
+        bytes += read;
+
+        buffer.flip();
+        while (buffer.remaining() >= 2) {
+            final int length = buffer.getShort(buffer.position()) & 0xFFFF;
+            if (buffer.remaining() < (length + 2)) {
+                break;
+            }
+
+            final int frameStart = buffer.position() + 2;
+            if (buffer.get(frameStart) == ServerProtocol.FRAME_SNAPSHOT) {
+                frames++;
+                final GameState gameState = GAME_STATES[buffer.get(frameStart + 1)];
+                if (gameState == GameState.GameOver) {
+                    restarts++;
+                    send(connection, ServerProtocol.START);
+                }
+            }
+            buffer.position(frameStart + length);
+        }
+        buffer.compact();
+    }
+}
@@ -0,0 +1,56 @@
+package javagame.tetrominoes.server;
+
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDirection;
+
+/**
+ * 对局服务器的TCP协议。一个连接对应一局游戏。
+ * <p>
+ * 客户端到服务器： 每个操作一个字节。0~11为移动，值为 移动方向序号 * 3 + 旋转方向序号；其余见下面的常量。<br>
+ * 服务器到客户端： 状态更新帧，格式为 长度（2字节，不含长度本身）、帧类型（1字节）、内容。
+ * 画面帧的内容为 游戏状态序号（1字节）、等级（4字节）、数据板快照（{@link javagame.tetrominoes.data.BoardCodec}）。
+ * 服务器只发送最新的状态，客户端来不及接收时中间状态被合并。
+ */
+public final class ServerProtocol {
+    public static final int DROP_DOWN = 12;
+    public static final int START = 13;
+    public static final int PAUSE = 14;
+    public static final int STOP = 15;
+
+    /**
+     * 画面帧类型。
+     */
+    public static final int FRAME_SNAPSHOT = 1;
+    // 帧头的长度（长度、帧类型）
+    public static final int FRAME_HEADER_SIZE = 3;
+    // 画面帧中数据板快照之前的内容长度（游戏状态、等级）
+    public static final int SNAPSHOT_PREFIX_SIZE = 5;
+
+    private static final MovementDirection[] MOVEMENT_DIRECTIONS = MovementDirection.values();
+    private static final RotationDirection[] ROTATION_DIRECTIONS = RotationDirection.values();
+
+    private ServerProtocol() {
+    }
+
+    /**
+     * 移动操作的字节。
+     */
+    public static int moveCode(final MovementDirection movementDirection, final RotationDirection rotationDirection) {
+        return (movementDirection.ordinal() * ROTATION_DIRECTIONS.length) + rotationDirection.ordinal();
+    }
+
+    /**
+     * 是否为移动操作。
+     */
+    public static boolean isMoveCode(final int code) {
+        return (code >= 0) && (code < (MOVEMENT_DIRECTIONS.length * ROTATION_DIRECTIONS.length));
+    }
+
+    public static MovementDirection movementDirectionOf(final int code) {
+        return MOVEMENT_DIRECTIONS[code / ROTATION_DIRECTIONS.length];
+    }
+
+    public static RotationDirection rotationDirectionOf(final int code) {
+        return ROTATION_DIRECTIONS[code % ROTATION_DIRECTIONS.length];
+    }
+}
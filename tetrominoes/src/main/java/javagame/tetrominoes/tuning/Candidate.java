@@ -0,0 +1,116 @@
+package javagame.tetrominoes.tuning;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import javagame.tetrominoes.ai.HeuristicEvaluator;
+
+/**
+ * 种群中的一个个体： {@link HeuristicEvaluator}的一组权重（各列高度之和、消除行数、空洞数、相邻列高度差之和），长度归一化为1，
+ * 以及它的适应度（每局平均消除的行数，还没有评估时为NaN）。
+ */
+public class Candidate {
+    // 权重的个数
+    public static final int WEIGHT_COUNT = 4;
+
+    private final double[] weights;
+    private double fitness = Double.NaN;
+
+    public Candidate(final double[] weights) {
+        this(normalize(checkLength(weights).clone()), Double.NaN);
+    }
+
+    private Candidate(final double[] weights, final double fitness) {
+        this.weights = weights;
+        this.fitness = fitness;
+    }
+
+    /**
+     * 从检查点恢复个体，权重原样使用（不再归一化），保证恢复后的运行结果与不中断时相同。
+     */
+    static Candidate restore(final double[] weights, final double fitness) {
+        return new Candidate(checkLength(weights).clone(), fitness);
+    }
+
+    private static double[] checkLength(final double[] weights) {
+        if (weights.length != WEIGHT_COUNT) {
+            throw new IllegalArgumentException("权重个数应为" + WEIGHT_COUNT + ": " + weights.length);
+        }
+        return weights;
+    }
+
+    /**
+     * 随机产生一个个体： 每个权重在 [-0.5, 0.5) 之间均匀分布。
+     */
+    public static Candidate random(final Random random) {
+        final double[] weights = new double[WEIGHT_COUNT];
+        for (int i = 0; i < WEIGHT_COUNT; i++) {
+            weights[i] = random.nextDouble() - 0.5;
+        }
+        return new Candidate(weights);
+    }
+
+    /**
+     * 交叉： 按两个父代的适应度加权平均权重。
+     */
+    public static Candidate crossover(final Candidate first, final Candidate second) {
+        final double total = first.fitness + second.fitness;
+        final double ratio = (total > 0) ? (first.fitness / total) : 0.5;
+        final double[] weights = new double[WEIGHT_COUNT];
+        for (int i = 0; i < WEIGHT_COUNT; i++) {
+            weights[i] = (first.weights[i] * ratio) + (second.weights[i] * (1 - ratio));
+        }
+        return new Candidate(weights);
+    }
+
+    /**
+     * 变异： 随机一个权重加上 [-amount, amount) 之间的随机值，返回新的个体。
+     */
+    public Candidate mutate(final Random random, final double amount) {
+        final double[] mutated = weights.clone();
+        mutated[random.nextInt(WEIGHT_COUNT)] += ((random.nextDouble() * 2) - 1) * amount;
+        return new Candidate(mutated);
+    }
+
+    /**
+     * 按权重创建评估函数。
+     */
+    public HeuristicEvaluator createEvaluator() {
+        return new HeuristicEvaluator(weights[0], weights[1], weights[2], weights[3]);
+    }
+
+    private static double[] normalize(final double[] weights) {
+        double length = 0;
+        for (final double weight : weights) {
+            length += weight * weight;
+        }
+        length = Math.sqrt(length);
+        if (length > 0) {
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] /= length;
+            }
+        }
+        return weights;
+    }
+
+    public double getWeight(final int index) {
+        return weights[index];
+    }
+
+    public double getFitness() {
+        return fitness;
+    }
+
+    public void setFitness(final double fitness) {
+        this.fitness = fitness;
+    }
+
+    public boolean isEvaluated() {
+        return !Double.isNaN(fitness);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.2f %s", fitness, Arrays.toString(weights));
+    }
+}
@@ -0,0 +1,409 @@
+package javagame.tetrominoes.tuning;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javagame.tetrominoes.ai.HeuristicEvaluator;
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.enums.Randomizer;
+
+/**
+ * 用遗传算法调整{@link HeuristicEvaluator}的权重。
+ * <p>
+ * 每代从种群中锦标赛选出父代，按适应度加权交叉、以一定概率变异产生后代，替换掉适应度最低的个体。
+ * 适应度为每个个体在同一组固定种子的对局（{@link TuningGame}）中平均消除的行数；
+ * 所有待评估的（个体, 对局）在独立的Fork/Join线程池中并行（工作窃取），结果按下标汇总，遗传操作在主线程中进行，
+ * 每代的随机数由总种子和代数决定，所以同样的参数总是得到同样的结果，从检查点恢复后也与不中断时相同。
+ * <p>
+ * 每代结束后把种群和决定适应度的参数写入检查点文件（先写临时文件再替换），并输出最好/平均适应度、最好的权重和每秒对局数。
+ * <p>
+ * 用法： java -cp tetrominoes.jar javagame.tetrominoes.tuning.GeneticTuner 检查点文件 [代数]<br>
+ * 检查点文件存在时从中恢复种群继续，检查点的种子、种群大小、对局数、方块数上限、随机方式必须与运行参数相同。运行参数：
+ * <ul>
+ * <li>-Dtetrominoes.tuning.seed=种子： 总种子，缺省1</li>
+ * <li>-Dtetrominoes.tuning.population=个数： 种群大小，缺省100</li>
+ * <li>-Dtetrominoes.tuning.games=局数： 每个个体的对局数，缺省20</li>
+ * <li>-Dtetrominoes.tuning.pieces=个数： 每局的方块数上限，缺省500</li>
+ * <li>-Dtetrominoes.tuning.threads=线程数： 缺省为CPU核数</li>
+ * <li>-Dtetrominoes.randomizer=Uniform|SevenBag： 方块序列的随机方式，与界面相同</li>
+ * </ul>
+ */
+public class GeneticTuner {
+    // 检查点文件的第一行
+    private static final String CHECKPOINT_HEADER = "TTGA 2";
+    // 检查点第二行的字段个数
+    private static final int CHECKPOINT_PARAMETERS = 6;
+    // 缺省的代数
+    private static final int DEFAULT_GENERATIONS = 50;
+    // 每代替换的比例
+    private static final double REPLACEMENT_RATIO = 0.3;
+    // 锦标赛的规模（占种群的比例）
+    private static final double TOURNAMENT_RATIO = 0.1;
+    // 变异的概率和幅度
+    private static final double MUTATION_RATE = 0.05;
+    private static final double MUTATION_AMOUNT = 0.2;
+
+    // 按适应度从高到低排序，未评估的排在最后
+    private static final Comparator<Candidate> BY_FITNESS = new Comparator<Candidate>() {
+        public int compare(final Candidate first, final Candidate second) {
+            return Double.compare(fitnessOrMin(second), fitnessOrMin(first));
+        }
+    };
+
+    private final long seed;
+    private final int populationSize;
+    private final int gamesPerCandidate;
+    private final int maxPieces;
+    private final Randomizer randomizer;
+    private final ForkJoinPool pool;
+    // 所有个体共用的对局种子
+    private final long[] gameSeeds;
+    // 初始种群的种子
+    private final long initialSeed;
+
+    // 当前种群和代数
+    private List<Candidate> population = new ArrayList<Candidate>();
+    private int generation;
+
+    // 统计数据： 已完成的对局数和耗费的时间（纳秒）
+    private long gamesPlayed;
+    private long playNanos;
+
+    public GeneticTuner(final long seed, final int populationSize, final int gamesPerCandidate, final int maxPieces,
+            final Randomizer randomizer, final int threads) {
+        if ((populationSize < 2) || (gamesPerCandidate < 1) || (maxPieces < 1)) {
+            throw new IllegalArgumentException("种群至少2个，对局数和方块数至少为1");
+        }
+
+        this.seed = seed;
+        this.populationSize = populationSize;
+        this.gamesPerCandidate = gamesPerCandidate;
+        this.maxPieces = maxPieces;
+        this.randomizer = randomizer;
+        this.pool = new ForkJoinPool(threads);
+
+        final Random random = new Random(seed);
+        gameSeeds = new long[gamesPerCandidate];
+        for (int i = 0; i < gamesPerCandidate; i++) {
+            gameSeeds[i] = random.nextLong();
+        }
+        initialSeed = random.nextLong();
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("用法: GeneticTuner 检查点文件 [代数]");
+            System.exit(2);
+        }
+
+        final Path checkpoint = Paths.get(args[0]);
+        final int generations = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_GENERATIONS;
+        final GeneticTuner tuner = new GeneticTuner(Long.getLong("tetrominoes.tuning.seed", 1),
+                Integer.getInteger("tetrominoes.tuning.population", 100),
+                Integer.getInteger("tetrominoes.tuning.games", 20),
+                Integer.getInteger("tetrominoes.tuning.pieces", 500),
+                Randomizer.valueOf(System.getProperty("tetrominoes.randomizer", "Uniform")),
+                Integer.getInteger("tetrominoes.tuning.threads", Runtime.getRuntime().availableProcessors()));
+
+        if (Files.exists(checkpoint)) {
+            tuner.loadCheckpoint(checkpoint);
+            System.out.printf("从检查点恢复： 第 %d 代，%d 个个体%n", tuner.generation, tuner.population.size());
+        } else {
+            tuner.initialize();
+        }
+
+        while (tuner.generation < generations) {
+            tuner.evolve();
+            tuner.saveCheckpoint(checkpoint);
+            tuner.printProgress();
+        }
+        tuner.shutdown();
+    }
+
+    /**
+     * 产生随机的初始种群并评估。
+     */
+    public void initialize() {
+        final Random random = new Random(initialSeed);
+        population = new ArrayList<Candidate>(populationSize);
+        for (int i = 0; i < populationSize; i++) {
+            population.add(Candidate.random(random));
+        }
+        evaluate(population);
+        Collections.sort(population, BY_FITNESS);
+    }
+
+    /**
+     * 进化一代： 产生后代并评估，替换掉适应度最低的个体。
+     */
+    public void evolve() {
+        final Random random = generationRandom();
+        final int offspringCount = Math.max(1, (int) (populationSize * REPLACEMENT_RATIO));
+        final int tournamentSize = Math.min(population.size(),
+                Math.max(2, (int) (populationSize * TOURNAMENT_RATIO)));
+
+        // 锦标赛不放回地抽取不同的个体（部分洗牌），两个父代不会是同一个个体
+        final int[] indices = new int[population.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+
+        final List<Candidate> offspring = new ArrayList<Candidate>(offspringCount);
+        for (int i = 0; i < offspringCount; i++) {
+            final List<Candidate> tournament = new ArrayList<Candidate>(tournamentSize);
+            for (int j = 0; j < tournamentSize; j++) {
+                final int k = j + random.nextInt(indices.length - j);
+                final int index = indices[k];
+                indices[k] = indices[j];
+                indices[j] = index;
+                tournament.add(population.get(index));
+            }
+            Collections.sort(tournament, BY_FITNESS);
+
+            Candidate child = Candidate.crossover(tournament.get(0), tournament.get(1));
+            if (random.nextDouble() < MUTATION_RATE) {
+                child = child.mutate(random, MUTATION_AMOUNT);
+            }
+            offspring.add(child);
+        }
+        evaluate(offspring);
+
+        final List<Candidate> next = new ArrayList<Candidate>(population.subList(0, populationSize - offspringCount));
+        next.addAll(offspring);
+        Collections.sort(next, BY_FITNESS);
+        population = next;
+        generation++;
+    }
+
+    /**
+     * 并行评估一组个体： 每个（个体, 对局）是一个任务，全部完成后按下标汇总适应度。
+     */
+    private void evaluate(final List<Candidate> candidates) {
+        final int[] lines = new int[candidates.size() * gamesPerCandidate];
+        final long start = System.nanoTime();
+        pool.invoke(new GamesTask(candidates, lines, 0, lines.length));
+        playNanos += System.nanoTime() - start;
+        gamesPlayed += lines.length;
+
+        for (int i = 0; i < candidates.size(); i++) {
+            long total = 0;
+            for (int game = 0; game < gamesPerCandidate; game++) {
+                total += lines[(i * gamesPerCandidate) + game];
+            }
+            candidates.get(i).setFitness(total / (double) gamesPerCandidate);
+        }
+    }
+
+    /**
+     * 一段（个体, 对局）的任务，不断对半拆分直到单局。
+     */
+    private class GamesTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Candidate> candidates;
+        private final int[] lines;
+        private final int from;
+        private final int to;
+
+        GamesTask(final List<Candidate> candidates, final int[] lines, final int from, final int to) {
+            this.candidates = candidates;
+            this.lines = lines;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if ((to - from) > 1) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new GamesTask(candidates, lines, from, middle), new GamesTask(candidates, lines, middle, to));
+                return;
+            }
+
+            final Candidate candidate = candidates.get(from / gamesPerCandidate);
+            final Board board = new Board(randomizer.create(gameSeeds[from % gamesPerCandidate]));
+            lines[from] = TuningGame.play(candidate.createEvaluator(), board, maxPieces);
+        }
+    }
+
+    /**
+     * 当前代的随机数： 由总种子和代数决定，与运行过程无关。
+     */
+    private Random generationRandom() {
+        return new Random(seed ^ ((generation + 1) * 0x9E3779B97F4A7C15L));
+    }
+
+    /**
+     * 保存检查点： 第一行为格式和版本，第二行为总种子、代数、个体数、每个个体的对局数、每局的方块数上限、随机方式，
+     * 之后每行一个个体（适应度和各权重，精确的十进制表示）。
+     */
+    public void saveCheckpoint(final Path file) throws IOException {
+        final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.US_ASCII)) {
+            writer.write(CHECKPOINT_HEADER);
+            writer.newLine();
+            writer.write(seed + " " + generation + " " + population.size() + " " + gamesPerCandidate + " " + maxPieces
+                    + " " + randomizer.name());
+            writer.newLine();
+            for (final Candidate candidate : population) {
+                final StringBuilder line = new StringBuilder().append(candidate.getFitness());
+                for (int i = 0; i < Candidate.WEIGHT_COUNT; i++) {
+                    line.append(' ').append(candidate.getWeight(i));
+                }
+                writer.write(line.toString());
+                writer.newLine();
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取检查点，恢复种群和代数。检查点的种子、种群大小、对局数、方块数上限、随机方式与当前的不同时适应度不可比，
+     * 结果也不再与不中断时相同，拒绝恢复。
+     *
+     * @throws IOException
+     *             文件无法读取、格式错误（不完整、字段个数或数值不合法），或参数与当前的不同
+     */
+    public void loadCheckpoint(final Path file) throws IOException {
+        try (LineNumberReader reader = new LineNumberReader(
+                Files.newBufferedReader(file, StandardCharsets.US_ASCII))) {
+            if (!CHECKPOINT_HEADER.equals(reader.readLine())) {
+                throw new IOException("不是调参检查点文件（或版本不支持）: " + file);
+            }
+
+            final String[] header = readFields(reader, CHECKPOINT_PARAMETERS, file);
+            final int loadedGeneration = parseInt(header[1], reader, file);
+            final int size = parseInt(header[2], reader, file);
+            checkParameter("种子", parseLong(header[0], reader, file), seed, file);
+            checkParameter("种群大小", size, populationSize, file);
+            checkParameter("每个个体的对局数", parseInt(header[3], reader, file), gamesPerCandidate, file);
+            checkParameter("每局的方块数上限", parseInt(header[4], reader, file), maxPieces, file);
+            if (!randomizer.name().equals(header[5])) {
+                throw new IOException("检查点的随机方式为 " + header[5] + "，与当前的 " + randomizer + " 不同: " + file);
+            }
+            if (loadedGeneration < 0) {
+                throw new IOException("检查点的代数不合法: " + loadedGeneration + ": " + file);
+            }
+
+            final List<Candidate> loaded = new ArrayList<Candidate>(size);
+            for (int i = 0; i < size; i++) {
+                final String[] fields = readFields(reader, Candidate.WEIGHT_COUNT + 1, file);
+                final double[] weights = new double[Candidate.WEIGHT_COUNT];
+                for (int j = 0; j < weights.length; j++) {
+                    weights[j] = parseDouble(fields[j + 1], reader, file);
+                }
+                loaded.add(Candidate.restore(weights, parseDouble(fields[0], reader, file)));
+            }
+
+            population = loaded;
+            generation = loadedGeneration;
+        }
+    }
+
+    /**
+     * 读取检查点的一行，按空格分成指定个数的字段。
+     */
+    private static String[] readFields(final LineNumberReader reader, final int count, final Path file)
+            throws IOException {
+        final String line = reader.readLine();
+        if (line == null) {
+            throw new IOException("检查点文件不完整: " + file);
+        }
+
+        final String[] fields = line.split(" ");
+        if (fields.length != count) {
+            throw new IOException("检查点文件第 " + reader.getLineNumber() + " 行应有 " + count + " 个字段，实际为 "
+                    + fields.length + ": " + file);
+        }
+        return fields;
+    }
+
+    private static void checkParameter(final String name, final long loaded, final long current, final Path file)
+            throws IOException {
+        if (loaded != current) {
+            throw new IOException("检查点的" + name + "为 " + loaded + "，与当前的 " + current + " 不同: " + file);
+        }
+    }
+
+    private static int parseInt(final String field, final LineNumberReader reader, final Path file)
+            throws IOException {
+        try {
+            return Integer.parseInt(field);
+        } catch (final NumberFormatException e) {
+            throw invalidNumber(field, reader, file, e);
+        }
+    }
+
+    private static long parseLong(final String field, final LineNumberReader reader, final Path file)
+            throws IOException {
+        try {
+            return Long.parseLong(field);
+        } catch (final NumberFormatException e) {
+            throw invalidNumber(field, reader, file, e);
+        }
+    }
+
+    private static double parseDouble(final String field, final LineNumberReader reader, final Path file)
+            throws IOException {
+        try {
+            return Double.parseDouble(field);
+        } catch (final NumberFormatException e) {
+            throw invalidNumber(field, reader, file, e);
+        }
+    }
+
+    private static IOException invalidNumber(final String field, final LineNumberReader reader, final Path file,
+            final NumberFormatException cause) {
+        return new IOException("检查点文件第 " + reader.getLineNumber() + " 行的数值不合法: " + field + ": " + file, cause);
+    }
+
+    /**
+     * 输出当前代的进度。
+     */
+    public void printProgress() {
+        double total = 0;
+        for (final Candidate candidate : population) {
+            total += candidate.getFitness();
+        }
+        System.out.printf("第 %d 代  最好: %.2f  平均: %.2f  对局: %d  %.0f 局/秒  最好的个体: %s%n", generation,
+                population.get(0).getFitness(), total / population.size(), gamesPlayed, getGamesPerSecond(),
+                population.get(0));
+    }
+
+    /**
+     * 每秒完成的对局数（按评估耗费的时间计算）。
+     */
+    public double getGamesPerSecond() {
+        return (playNanos == 0) ? 0 : ((gamesPlayed * 1e9) / playNanos);
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public List<Candidate> getPopulation() {
+        return Collections.unmodifiableList(population);
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    private static double fitnessOrMin(final Candidate candidate) {
+        return candidate.isEvaluated() ? candidate.getFitness() : Double.NEGATIVE_INFINITY;
+    }
+}
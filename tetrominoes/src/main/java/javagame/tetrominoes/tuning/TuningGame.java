@@ -0,0 +1,78 @@
+package javagame.tetrominoes.tuning;
+
+import javagame.tetrominoes.ai.Evaluator;
+import javagame.tetrominoes.ai.PlacementSearch;
+import javagame.tetrominoes.data.Board;
+import javagame.tetrominoes.data.ShapeTable;
+import javagame.tetrominoes.enums.MovementDirection;
+import javagame.tetrominoes.enums.RotationDegree;
+import javagame.tetrominoes.enums.RotationDirection;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 调参用的无界面对局： 电脑玩家按评估函数贪心放置每个方块（不前瞻），直到游戏结束或达到方块数上限。
+ * <p>
+ * 放置方案的枚举顺序和评分相同时的取舍与{@link PlacementSearch}一致，但在当前线程中顺序搜索，
+ * 并行放在对局的层面上；方块序列由种子决定，同样的评估函数和种子总是得到同样的结果。
+ */
+public final class TuningGame {
+    // 旋转次数的上限（4次即回到原角度）
+    private static final int MAX_ROTATIONS = RotationDegree.values().length;
+
+    private TuningGame() {
+    }
+
+    /**
+     * 进行一局。
+     *
+     * @param evaluator
+     *            评估函数
+     * @param board
+     *            数据板（已设置好种子的方块序列），会被清空后使用
+     * @param maxPieces
+     *            方块数上限
+     * @return 消除的行数
+     */
+    public static int play(final Evaluator evaluator, final Board board, final int maxPieces) {
+        board.clearBoard();
+        final Board scratch = new Board(board);
+
+        for (int pieces = 0; pieces < maxPieces; pieces++) {
+            // 产生方式与游戏引擎一致： 新方块出现后立即下落一格，不能下落时游戏结束
+            board.newShap();
+            if (!board.tryToMove(MovementDirection.Down, RotationDirection.NoRotation)) {
+                break;
+            }
+
+            final Tetrominoes tetrominoes = board.getCurShape().getTetrominoes();
+            RotationDegree degree = board.getCurShape().getRotationDegree();
+            int bestRotations = -1;
+            int bestX = 0;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int rotations = 0; rotations < MAX_ROTATIONS; rotations++) {
+                final ShapeTable shapeTable = ShapeTable.of(tetrominoes, degree);
+                for (int x = shapeTable.getMinX(); x <= shapeTable.getMaxX(board.getBoardWidth()); x++) {
+                    scratch.copyFrom(board);
+                    final int lines = PlacementSearch.place(scratch, rotations, x);
+                    if (lines < 0) {
+                        continue;
+                    }
+
+                    final double score = evaluator.evaluate(scratch, lines);
+                    if ((bestRotations < 0) || (score > bestScore)) {
+                        bestRotations = rotations;
+                        bestX = x;
+                        bestScore = score;
+                    }
+                }
+                degree = degree.rotate(RotationDirection.Left);
+            }
+
+            if (bestRotations < 0) {
+                break;
+            }
+            PlacementSearch.place(board, bestRotations, bestX);
+        }
+        return board.getLinesOfCleared();
+    }
+}
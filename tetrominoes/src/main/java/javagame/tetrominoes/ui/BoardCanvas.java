@@ -0,0 +1,247 @@
+package javagame.tetrominoes.ui;
+
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Toolkit;
+import java.awt.Transparency;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+
+import javagame.tetrominoes.engine.BoardSnapshot;
+import javagame.tetrominoes.engine.FrameRenderer;
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 俄罗斯方块的画布，由游戏循环线程主动绘制（BufferStrategy双缓冲），不依赖Swing的重画事件。
+ * <p>
+ * 画布只读取引擎发布的{@link BoardSnapshot}，不接触数据板。方格（包括落点预览）画在离屏的数据板图层上，
+ * 和上次画好的快照比较，只重画有变化的方格： 每行有变化的范围分别重画（相邻行的范围相同时合并成一个矩形），
+ * 不相连的变化（如落地的方块和顶部出现的新方块）不会合并成覆盖大半个数据板的区域；状态变化、窗口缩放时整体重画。每一帧把图层整体复制到后台缓冲区再翻转显示。
+ * 除了{@link #invalidateBoard()}和窗口缩放事件，其他方法都只在游戏循环线程中调用。
+ */
+class BoardCanvas extends Canvas implements FrameRenderer {
+    private static final long serialVersionUID = 4470120931657640312L;
+
+    // 画布背景色
+    private static final Color BACKGROUND = new Color(0xEEEEEE);
+
+    // 数据板的尺寸（方格数）
+    private final int boardWidth;
+    private final int boardHight;
+    // 方格图块缓存
+    private final TileCache tileCache;
+
+    // 离屏的数据板图层
+    private BufferedImage boardLayer;
+
+    // 图层上已经画好的方格，下标为 y * boardWidth + x，值同快照
+    private final byte[] paintedCells;
+
+    // 需要整体重画（其他线程也会设置）
+    private volatile boolean fullRedraw = true;
+
+    BoardCanvas(final int boardWidth, final int boardHight) {
+        this.boardWidth = boardWidth;
+        this.boardHight = boardHight;
+        this.paintedCells = new byte[boardWidth * boardHight];
+        this.tileCache = new TileCache(this);
+
+        setBackground(BACKGROUND);
+        // 主动绘制，忽略系统的重画事件
+        setIgnoreRepaint(true);
+
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(final ComponentEvent e) {
+                fullRedraw = true;
+            }
+        });
+    }
+
+    /**
+     * 作废整个数据板图层，下一帧整体重画。
+     */
+    void invalidateBoard() {
+        fullRedraw = true;
+    }
+
+    /**
+     * 绘制一帧： 更新数据板图层的变化部分，复制到后台缓冲区并显示。
+     */
+    public void renderFrame(final BoardSnapshot snapshot) {
+        if ((snapshot == null) || !isDisplayable() || (getWidth() <= 0) || (getHeight() <= 0)) {
+            return;
+        }
+
+        final BufferStrategy bufferStrategy = getBufferStrategy();
+        if (bufferStrategy == null) {
+            createBufferStrategy(2);
+            return;
+        }
+
+        updateBoardLayer(snapshot);
+
+        do {
+            do {
+                final Graphics g = bufferStrategy.getDrawGraphics();
+                try {
+                    g.drawImage(boardLayer, 0, 0, null);
+                } finally {
+                    g.dispose();
+                }
+            } while (bufferStrategy.contentsRestored());
+
+            bufferStrategy.show();
+        } while (bufferStrategy.contentsLost());
+
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    /**
+     * 更新数据板图层： 尺寸变化时重建，然后整体或只重画和上次不同的方格所在的各个区域。
+     */
+    private void updateBoardLayer(final BoardSnapshot snapshot) {
+        final int width = getWidth();
+        final int height = getHeight();
+        if ((boardLayer == null) || (boardLayer.getWidth() != width) || (boardLayer.getHeight() != height)) {
+            final GraphicsConfiguration gc = getGraphicsConfiguration();
+            boardLayer = (gc == null) ? new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+                    : gc.createCompatibleImage(width, height, Transparency.OPAQUE);
+            fullRedraw = true;
+        }
+
+        if (fullRedraw) {
+            fullRedraw = false;
+            for (int y = 0; y < boardHight; y++) {
+                for (int x = 0; x < boardWidth; x++) {
+                    paintedCells[(y * boardWidth) + x] = (byte) snapshot.getCell(x, y);
+                }
+            }
+            drawCells(snapshot, 0, 0, boardWidth, boardHight, true);
+            return;
+        }
+
+        // 逐行找出有变化的方格的范围，连续几行的范围相同时合并成一个矩形（如消行后下移的各行）
+        int bandMinX = 0;
+        int bandMaxX = -1;
+        int bandBottom = 0;
+        int bandRows = 0;
+        for (int y = 0; y < boardHight; y++) {
+            int minX = boardWidth;
+            int maxX = -1;
+            for (int x = 0; x < boardWidth; x++) {
+                final int index = (y * boardWidth) + x;
+                final byte cell = (byte) snapshot.getCell(x, y);
+                if (paintedCells[index] != cell) {
+                    paintedCells[index] = cell;
+                    minX = Math.min(minX, x);
+                    maxX = x;
+                }
+            }
+
+            if ((bandRows > 0) && ((maxX < 0) || (minX != bandMinX) || (maxX != bandMaxX))) {
+                drawCells(snapshot, bandMinX, bandBottom, (bandMaxX - bandMinX) + 1, bandRows, false);
+                bandRows = 0;
+            }
+            if (maxX >= 0) {
+                if (bandRows == 0) {
+                    bandMinX = minX;
+                    bandMaxX = maxX;
+                    bandBottom = y;
+                }
+                bandRows++;
+            }
+        }
+
+        if (bandRows > 0) {
+            drawCells(snapshot, bandMinX, bandBottom, (bandMaxX - bandMinX) + 1, bandRows, false);
+        }
+    }
+
+    /**
+     * 在数据板图层上重画一个方格区域。
+     *
+     * @param snapshot
+     *            画面快照
+     * @param cellX
+     *            区域左下角方格x坐标
+     * @param cellY
+     *            区域左下角方格y坐标
+     * @param cellWidth
+     *            区域宽度（方格数）
+     * @param cellHeight
+     *            区域高度（方格数）
+     * @param clearAll
+     *            是否先清空整个图层
+     */
+    private void drawCells(final BoardSnapshot snapshot, final int cellX, final int cellY, final int cellWidth,
+            final int cellHeight, final boolean clearAll) {
+        final int squareWidth = squareWidth();
+        final int squareHeight = squareHeight();
+        final int maxY = boardHight - 1;
+        // 计算窗口大小不能整除的时候上方留白
+        final int boardTop = getHeight() - (boardHight * squareHeight);
+
+        final int minColumn = Math.max(0, cellX);
+        final int maxColumn = Math.min(boardWidth - 1, (cellX + cellWidth) - 1);
+        final int minY = Math.max(0, cellY);
+        final int topY = Math.min(maxY, (cellY + cellHeight) - 1);
+
+        final Graphics g = boardLayer.getGraphics();
+        try {
+            g.setColor(getBackground());
+            if (clearAll) {
+                g.fillRect(0, 0, boardLayer.getWidth(), boardLayer.getHeight());
+            } else if ((minColumn <= maxColumn) && (minY <= topY)) {
+                g.fillRect(minColumn * squareWidth, boardTop + ((maxY - topY) * squareHeight),
+                        ((maxColumn - minColumn) + 1) * squareWidth, ((topY - minY) + 1) * squareHeight);
+            }
+
+            if ((squareWidth <= 0) || (squareHeight <= 0)) {
+                return;
+            }
+
+            for (int y = minY; y <= topY; y++) {
+                for (int x = minColumn; x <= maxColumn; x++) {
+                    final Tetrominoes tetrominoes = snapshot.getTetrominoes(x, y);
+
+                    // y轴原点在下方，转换为屏幕坐标
+                    if (tetrominoes != null) {
+                        tileCache.drawTile(g, tetrominoes, x * squareWidth, boardTop + ((maxY - y) * squareHeight),
+                                squareWidth, squareHeight);
+                    } else {
+                        final Tetrominoes ghost = snapshot.getGhostTetrominoes(x, y);
+                        if (ghost != null) {
+                            tileCache.drawGhostTile(g, ghost, x * squareWidth,
+                                    boardTop + ((maxY - y) * squareHeight), squareWidth, squareHeight);
+                        }
+                    }
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * 方块一格的宽度。
+     *
+     * @return 方块一格宽度
+     */
+    private int squareWidth() {
+        return getWidth() / boardWidth;
+    }
+
+    /**
+     * 方块一格的高度。
+     *
+     * @return 方块一格高度
+     */
+    private int squareHeight() {
+        return getHeight() / boardHight;
+    }
+}
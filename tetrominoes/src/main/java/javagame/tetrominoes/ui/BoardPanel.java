@@ -1,301 +1,323 @@
 package javagame.tetrominoes.ui;
 
-import java.awt.Color;
-import java.awt.Dimension;
-import java.awt.Graphics;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.awt.BorderLayout;
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.JPanel;
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
 
+import javagame.tetrominoes.ai.AiPlayer;
 import javagame.tetrominoes.data.Board;
-import javagame.tetrominoes.enums.MovementDirection;
-import javagame.tetrominoes.enums.RotationDirection;
+import javagame.tetrominoes.engine.BoardSnapshot;
+import javagame.tetrominoes.engine.FrameRenderer;
+import javagame.tetrominoes.engine.GameEngine;
+import javagame.tetrominoes.engine.GameListener;
+import javagame.tetrominoes.engine.GameLoop;
+import javagame.tetrominoes.engine.InputController;
+import javagame.tetrominoes.enums.GameState;
+import javagame.tetrominoes.enums.GravityCurve;
+import javagame.tetrominoes.enums.InputAction;
+import javagame.tetrominoes.enums.Randomizer;
+import javagame.tetrominoes.replay.ReplayRecorder;
 
 /**
- * 俄罗斯方块操控区面板。
+ * 俄罗斯方块操控区面板。游戏流程由{@link GameEngine}处理，由{@link GameLoop}线程驱动和主动绘制，面板只负责键盘输入和状态栏。
+ * <p>
+ * 键盘事件在Swing事件线程中发生，全部转交给游戏循环线程执行： 移动、旋转、下落的按下/松开放入{@link InputController}的队列，
+ * 其他按键作为命令提交；引擎的事件回调在游戏循环线程中发生。
+ * 画布和状态栏只读取游戏循环发布的{@link BoardSnapshot}。
  */
-public class BoardPanel extends JPanel implements ActionListener {
+public class BoardPanel extends JPanel implements GameListener, FrameRenderer {
     private static final long serialVersionUID = -920046887713187928L;
 
+    // 帧率的范围
+    private static final int MIN_FRAMES_PER_SECOND = 60;
+    private static final int MAX_FRAMES_PER_SECOND = 144;
+
     // 主体窗口控制器引用
     private final Tetris parent;
 
-    // Swing的定时器，控制方块移动
-    private final Timer timer;
-    // 运行中状态
-    private boolean isRunning = false;
-    // 暂停状态
-    private boolean isPaused = false;
-
-    // 方块控制区的数据板（方块控制区对应的数据）
-    private final Board board;
+    // 游戏引擎
+    private final GameEngine engine;
+    // 游戏循环
+    private final GameLoop gameLoop;
+    // 画布
+    private final BoardCanvas canvas;
+
+    // 电脑玩家
+    private final AiPlayer aiPlayer;
+    // 电脑玩家代替重力下落，每次下落放置一个方块（只在游戏循环线程中访问）
+    private boolean autoPlay = false;
+
+    // 最新的状态栏文字，以及是否已经提交给Swing事件线程（多次更新合并为一次）
+    private volatile String status = "";
+    // 状态栏的附加消息（只在游戏循环线程中修改）
+    private String message = "";
+    // 状态栏上次更新时的快照版本
+    private long statusVersion = -1;
+    private final AtomicBoolean statusPending = new AtomicBoolean();
 
     public BoardPanel(final Tetris parent) {
+        super(new BorderLayout());
         this.parent = parent;
 
-        // 初始化定时器
-        timer = new Timer(400, this); // timer for lines down
-
-        // 初始化方块数据板
-        board = new Board();
+        // 初始化游戏引擎：方块序列的随机方式可以用 -Dtetrominoes.randomizer=Uniform|SevenBag 指定
+        final Randomizer randomizer = Randomizer.valueOf(System.getProperty("tetrominoes.randomizer", "Uniform"));
+        engine = new GameEngine(new Board(randomizer.create(System.nanoTime())));
+        engine.setGameListener(this);
+        // 对局记录：用 -Dtetrominoes.record=目录 指定时，每局记录到该目录中，可以用ReplayVerifier重放校验
+        final String recordDirectory = System.getProperty("tetrominoes.record");
+        if (recordDirectory != null) {
+            engine.setGameRecorder(new ReplayRecorder(Paths.get(recordDirectory)));
+        }
+        aiPlayer = new AiPlayer(engine);
+
+        // 初始化画布
+        final Board board = engine.getBoard();
+        canvas = new BoardCanvas(board.getBoardWidth(), board.getBoardHight());
+        add(canvas, BorderLayout.CENTER);
+
+        // 初始化游戏循环：重力曲线可以用 -Dtetrominoes.gravity=Constant|Stepped|Guideline 指定，帧率跟随显示器刷新率
+        gameLoop = new GameLoop(engine);
+        gameLoop.setGravityCurve(GravityCurve.valueOf(System.getProperty("tetrominoes.gravity", "Stepped")));
+        gameLoop.setFramesPerSecond(displayRefreshRate());
+        gameLoop.setFrameRenderer(this);
+        // 按住左右键的自动重复：-Dtetrominoes.das=毫秒（缺省170）后开始，每隔 -Dtetrominoes.arr=毫秒（缺省50，0为直接移到底）移动一格，
+        // 按住软降键每隔 -Dtetrominoes.softdrop=毫秒（缺省50）下移一格
+        final InputController inputController = gameLoop.getInputController();
+        inputController.setDelayedAutoShiftNanos(TimeUnit.MILLISECONDS.toNanos(Long.getLong("tetrominoes.das", 170)));
+        inputController.setAutoRepeatNanos(TimeUnit.MILLISECONDS.toNanos(Long.getLong("tetrominoes.arr", 50)));
+        inputController.setSoftDropNanos(TimeUnit.MILLISECONDS.toNanos(Long.getLong("tetrominoes.softdrop", 50)));
+        // 运行指标：通过JMX发布，每隔 -Dtetrominoes.metrics.interval=秒（缺省10）计算速率并输出到Info级别的事件日志
+        gameLoop.getMetrics().register("BoardPanel");
+        aiPlayer.getSearch().getCache().register("BoardPanel");
+        gameLoop.getMetrics().startReporting(
+                TimeUnit.SECONDS.toMillis(Long.getLong("tetrominoes.metrics.interval", 10)));
+        gameLoop.setTickAction(new Runnable() {
+            public void run() {
+                if (autoPlay) {
+                    aiPlayer.playPiece();
+                } else {
+                    engine.tick();
+                }
+            }
+        });
 
         // 添加键盘侦听事件
-        addKeyListener(new KeyAdapterAdapter());
+        canvas.addKeyListener(new KeyAdapterAdapter());
 
-        // 设置窗口焦点到这个控件
-        setFocusable(true);
+        // 设置窗口焦点到画布
+        canvas.setFocusable(true);
     }
 
     /**
-     * 启动： 清空控制区，产生一个新方块，设置运行标志，启动定时器。
+     * 启动游戏（同时启动游戏循环线程）。
      */
     public void start() {
-        if (isPaused) {
-            return;
-        }
-
-        board.clearBoard();
-        newShap();
-
-        isRunning = true;
-        timer.start();
-
-        this.updateStatus("已开始~");
+        gameLoop.start();
+        gameLoop.invokeLater(new Runnable() {
+            public void run() {
+                engine.start();
+            }
+        });
+        canvas.requestFocus();
     }
 
     /**
-     * 停止： 停止定时器，设置运行标志。
+     * 停止游戏。
      */
     public void stop() {
-        timer.stop();
-        isRunning = false;
+        gameLoop.invokeLater(new Runnable() {
+            public void run() {
+                engine.stop();
+            }
+        });
     }
 
     /**
-     * 暂停： 暂停定时器。
+     * 暂停/继续游戏。
      */
     public void pause() {
-        if (!isRunning) {
-            return;
-        }
-
-        isPaused = !isPaused;
-
-        if (isPaused) {
-            timer.stop();
-            this.updateStatus("暂停中!");
-        } else {
-            timer.start();
-            this.updateStatus("已开始~");
-        }
-
-        // 刷新Panel区的内容
-        this.repaint();
+        gameLoop.invokeLater(new Runnable() {
+            public void run() {
+                engine.pause();
+            }
+        });
     }
 
     /**
-     * 定时器任务触发后调用的事件，把当前方块下落一格。
+     * 数据板变化： 清除状态栏的附加消息（画布和状态栏在下一帧按快照更新）。
      */
-    public void actionPerformed(final ActionEvent ae) {
-        BoardPanel.this.tryToMove(MovementDirection.Down, RotationDirection.NoRotation);
+    public void boardChanged() {
+        message = "";
     }
 
     /**
-     * 产生一个新方块，并立即尝试向下移动一格，如果能够移动，继续，否则判定为游戏结束。
+     * 游戏状态变化： 整体重画，设置状态栏的附加消息。
      */
-    public void newShap() {
-        board.newShap();
-
-        if (!tryToMove(MovementDirection.Down, RotationDirection.NoRotation)) {
-            // Game Over
-            timer.stop();
-            isRunning = false;
-            this.updateStatus("哦哦，噢噢噢!");
+    public void stateChanged(final GameState gameState) {
+        switch (gameState) {
+        case Running:
+            message = "已开始~";
+            break;
+        case Paused:
+            message = "暂停中!";
+            break;
+        case GameOver:
+            message = "哦哦，噢噢噢!";
+            break;
+        default:
+            break;
         }
+
+        // 刷新画布的内容
+        canvas.invalidateBoard();
     }
 
     /**
-     * 尝试移动当前方块。
-     *
-     * @param movementDirection
-     *            移动方向
-     * @param rotationDirection
-     *            旋转方向
-     * @return 是否移动成功
+     * 键盘事件处理类：把按键交给游戏循环线程处理。
      */
-    public boolean tryToMove(final MovementDirection movementDirection, final RotationDirection rotationDirection) {
-        // 调用数据板进行当前方块移动
-        if (board.tryToMove(movementDirection, rotationDirection)) {
-            // 移动成功，重画刷新画面
-            this.repaint();
-
-            // 更新状态栏
-            this.updateStatus();
-            return true;
-        } else {
-            // 方块不能移动，则判断如果为下落，则尝试判断是否需要检查有无满行，进行清空；同时生成新方块
-            if (movementDirection == MovementDirection.Down) {
-                // 消除已经满的行
-                if (board.clearFullLines() > 0) {
-                    // 重画刷新画面
-                    this.repaint();
-                }
+    class KeyAdapterAdapter extends KeyAdapter {
+        @Override
+        public void keyPressed(final KeyEvent keyEvent) {
+            final int keyCode = keyEvent.getKeyCode();
+            final long pressedNanos = System.nanoTime();
 
-                // 生成新的方块
-                newShap();
-                this.updateStatus();
+            final InputAction action = toInputAction(keyCode);
+            if (action != null) {
+                // 暂停时也记下按住的状态，操作由引擎忽略
+                gameLoop.getInputController().keyPressed(action, pressedNanos);
+                return;
             }
-            return false;
-        }
-    }
 
-    /**
-     * 控制当前方块快速下落，直到不能移动。
-     */
-    private void dropDown() {
-        while (true) {
-            final boolean moved = BoardPanel.this.tryToMove(MovementDirection.Down, RotationDirection.NoRotation);
-            if (!moved) {
-                break;
-            }
+            gameLoop.invokeLater(new Runnable() {
+                public void run() {
+                    gameLoop.getMetrics().inputHandled(pressedNanos);
+                    handleKey(keyCode);
+                }
+            });
         }
-    }
 
-    /**
-     * JPanel的画画方法（事件），当有repaint事件发生时被触发。
-     */
-    @Override
-    public void paint(final Graphics graphics) {
-        // 调用父类的处理
-        super.paint(graphics);
-
-        // 获取Panel尺寸，支持窗口缩放
-        final Dimension size = this.getSize();
-        // 计算Panel窗口大小不能整除的时候上方留白
-        final int boardTop = (int) size.getHeight() - (board.getBoardHight() * squareHeight());
-
-        for (int y = 0; y < board.getBoardHight(); y++) {
-            for (int x = 0; x < board.getBoardWidth(); ++x) {
-                // y轴原点在下方，进行存储数据和计算
-                final Color color = board.getColor(x, board.getBoardHight() - y - 1);
-
-                if (color != null) {
-                    // 如果方格内有方块，则对应有颜色，则根据方块的颜色绘画方格
-                    drawSquare(graphics, x * squareWidth(), boardTop + (y * squareHeight()), color);
-                }
+        @Override
+        public void keyReleased(final KeyEvent keyEvent) {
+            final InputAction action = toInputAction(keyEvent.getKeyCode());
+            if (action != null) {
+                gameLoop.getInputController().keyReleased(action, System.nanoTime());
             }
         }
     }
 
     /**
-     * 绘画方格。
+     * 按键对应的操作。
+     *
+     * @param keyCode
+     *            按键代码
+     * @return 操作，不是移动、旋转、下落的按键时返回null
      */
-    private void drawSquare(final Graphics g, final int x, final int y, final Color color) {
-        // 用颜色画方格
-        g.setColor(color);
-        g.fillRect(x + 1, y + 1, squareWidth() - 2, squareHeight() - 2);
-
-        // 画方格左下两个边框
-        g.setColor(color.brighter());
-        g.drawLine(x, (y + squareHeight()) - 1, x, y);
-        g.drawLine(x, y, (x + squareWidth()) - 1, y);
-        // 画方格右上两个边框
-        g.setColor(color.darker());
-        g.drawLine(x + 1, (y + squareHeight()) - 1, (x + squareWidth()) - 1, (y + squareHeight()) - 1);
-        g.drawLine((x + squareWidth()) - 1, (y + squareHeight()) - 1, (x + squareWidth()) - 1, y + 1);
+    private static InputAction toInputAction(final int keyCode) {
+        switch (keyCode) {
+        case KeyEvent.VK_LEFT:
+            return InputAction.MoveLeft;
+        case KeyEvent.VK_RIGHT:
+            return InputAction.MoveRight;
+        case KeyEvent.VK_DOWN:
+            return InputAction.RotateRight;
+        case KeyEvent.VK_UP:
+            return InputAction.RotateLeft;
+        case KeyEvent.VK_SPACE:
+            return InputAction.HardDrop;
+        case 'd':
+        case 'D':
+            return InputAction.SoftDrop;
+        default:
+            return null;
+        }
     }
 
     /**
-     * 键盘事件处理类。
+     * 处理移动、旋转、下落以外的按键（重新开始、暂停、电脑玩家），在游戏循环线程中执行。
+     *
+     * @param keyCode
+     *            按键代码
      */
-    class KeyAdapterAdapter extends KeyAdapter {
-        @Override
-        public void keyPressed(final KeyEvent keyEvent) {
-            final int keyCode = keyEvent.getKeyCode();
-
-            if ((keyCode == 'r') || (keyCode == 'R')) {
-                stop();
-                start();
-                return;
-            }
-
-            if (!isRunning) {
-                return;
-            }
-
-            if ((keyCode == 'p') || (keyCode == 'P')) {
-                pause();
-            }
+    private void handleKey(final int keyCode) {
+        if ((keyCode == 'r') || (keyCode == 'R')) {
+            engine.stop();
+            engine.start();
+            return;
+        }
 
-            if (isPaused) {
-                return;
-            }
+        if (!engine.isRunning()) {
+            return;
+        }
 
-            switch (keyCode) {
-            case KeyEvent.VK_LEFT:
-                tryToMove(MovementDirection.Left, RotationDirection.NoRotation);
-                break;
-            case KeyEvent.VK_RIGHT:
-                tryToMove(MovementDirection.Right, RotationDirection.NoRotation);
-                break;
-            case KeyEvent.VK_DOWN:
-                tryToMove(MovementDirection.NoMovement, RotationDirection.Right);
-                break;
-            case KeyEvent.VK_UP:
-                tryToMove(MovementDirection.NoMovement, RotationDirection.Left);
-                break;
-            case KeyEvent.VK_SPACE:
-                dropDown();
-                break;
-            case 'd':
-            case 'D':
-                tryToMove(MovementDirection.Down, RotationDirection.NoRotation);
-                break;
-            }
+        if ((keyCode == 'p') || (keyCode == 'P')) {
+            engine.pause();
         }
-    }
 
-    /**
-     * 更新状态栏，不带附加消息。
-     */
-    private void updateStatus() {
-        this.updateStatus("");
+        if ((keyCode == 'a') || (keyCode == 'A')) {
+            autoPlay = !autoPlay;
+            message = autoPlay ? "电脑玩家已开启" : "电脑玩家已关闭";
+            // 数据板没有变化，强制下一帧更新状态栏
+            statusVersion = -1;
+        }
     }
 
     /**
-     * 更新状态栏，附带消息。
-     *
-     * @param message
-     *            消息文本内容
+     * 绘制一帧（在游戏循环线程中调用）： 画布按快照绘制，快照有变化时更新状态栏。
      */
-    private void updateStatus(final String message) {
-        final String status = String.format("已消除: %d  得分: %d  %s", board.getLinesOfCleared(), board.getScores(),
-                message);
+    public void renderFrame(final BoardSnapshot snapshot) {
+        canvas.renderFrame(snapshot);
 
-        // 调用父窗口控件的更新状态栏方法
-        parent.updateStatus(status);
+        if ((snapshot != null) && (snapshot.getVersion() != statusVersion)) {
+            statusVersion = snapshot.getVersion();
+            updateStatus(snapshot);
+        }
     }
 
     /**
-     * 方块一格的宽度。
+     * 按快照更新状态栏，附带消息。在游戏循环线程中调用，提交给Swing事件线程显示，来不及显示的中间状态会被合并。
      *
-     * @return 方块一格宽度
+     * @param snapshot
+     *            画面快照
      */
-    private int squareWidth() {
-        return (int) this.getSize().getWidth() / board.getBoardWidth();
+    private void updateStatus(final BoardSnapshot snapshot) {
+        status = String.format("已消除: %d  等级: %d  得分: %d  %s", snapshot.getLinesOfCleared(), snapshot.getLevel(),
+                snapshot.getScores(), message);
+
+        if (statusPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    statusPending.set(false);
+                    // 调用父窗口控件的更新状态栏方法
+                    parent.updateStatus(status);
+                }
+            });
+        }
     }
 
     /**
-     * 方块一格的高度。
+     * 显示器的刷新率，限制在60到144之间，无法获取时为60。
      *
-     * @return 方块一格高度
+     * @return 帧率
      */
-    private int squareHeight() {
-        return (int) this.getSize().getHeight() / board.getBoardHight();
-    }
+    private static int displayRefreshRate() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return MIN_FRAMES_PER_SECOND;
+        }
 
-}
\ No newline at end of file
+        final DisplayMode displayMode = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDisplayMode();
+        final int refreshRate = displayMode.getRefreshRate();
+        if (refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN) {
+            return MIN_FRAMES_PER_SECOND;
+        }
+        return Math.min(MAX_FRAMES_PER_SECOND, Math.max(MIN_FRAMES_PER_SECOND, refreshRate));
+    }
+}
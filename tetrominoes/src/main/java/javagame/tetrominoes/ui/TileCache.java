@@ -0,0 +1,168 @@
+package javagame.tetrominoes.ui;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+import javagame.tetrominoes.enums.Tetrominoes;
+
+/**
+ * 方格图块缓存： 按方块类型缓存预先画好的方格图块，每个方格只需要一次drawImage。
+ * <p>
+ * 优先使用可硬件加速的VolatileImage，不能创建（如组件还未显示）时使用兼容的BufferedImage；方格尺寸变化（窗口缩放）时全部作废重画。
+ */
+class TileCache {
+    // 方块类型数组缓存
+    private static final Tetrominoes[] TETROMINOES = Tetrominoes.values();
+
+    // 使用图块的组件
+    private final Component component;
+
+    // 各方块类型的图块，下标为方块类型序号
+    private final Image[] tiles = new Image[TETROMINOES.length];
+    // 图块尺寸
+    private int tileWidth;
+    private int tileHeight;
+
+    TileCache(final Component component) {
+        this.component = component;
+    }
+
+    /**
+     * 在指定位置画一个落点预览方格： 方块颜色的空心框，不缓存图块（只有4个方格）。
+     *
+     * @param g
+     *            画笔
+     * @param tetrominoes
+     *            方块类型
+     * @param x
+     *            左上角x坐标
+     * @param y
+     *            左上角y坐标
+     * @param width
+     *            方格宽度
+     * @param height
+     *            方格高度
+     */
+    void drawGhostTile(final Graphics g, final Tetrominoes tetrominoes, final int x, final int y, final int width,
+            final int height) {
+        g.setColor(tetrominoes.getColor());
+        g.drawRect(x + 1, y + 1, width - 3, height - 3);
+    }
+
+    /**
+     * 在指定位置画一个方格。
+     *
+     * @param g
+     *            画笔
+     * @param tetrominoes
+     *            方格所属的方块类型
+     * @param x
+     *            左上角x坐标
+     * @param y
+     *            左上角y坐标
+     * @param width
+     *            方格宽度
+     * @param height
+     *            方格高度
+     */
+    void drawTile(final Graphics g, final Tetrominoes tetrominoes, final int x, final int y, final int width,
+            final int height) {
+        if ((width != tileWidth) || (height != tileHeight)) {
+            // 方格尺寸变化，全部作废
+            invalidate();
+            tileWidth = width;
+            tileHeight = height;
+        }
+
+        final int index = tetrominoes.ordinal();
+        Image tile = tiles[index];
+
+        if (tile instanceof VolatileImage) {
+            final VolatileImage volatileImage = (VolatileImage) tile;
+            final int status = volatileImage.validate(component.getGraphicsConfiguration());
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                // 显示设备变化，重新创建
+                volatileImage.flush();
+                tile = null;
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                // 显存内容丢失后恢复，重画
+                renderTile(volatileImage, tetrominoes);
+            }
+        }
+
+        if (tile == null) {
+            tile = createTile(tetrominoes);
+            tiles[index] = tile;
+        }
+
+        g.drawImage(tile, x, y, null);
+
+        if ((tile instanceof VolatileImage) && ((VolatileImage) tile).contentsLost()) {
+            // 绘画过程中显存内容丢失，下次重新创建
+            tile.flush();
+            tiles[index] = null;
+        }
+    }
+
+    /**
+     * 作废所有图块。
+     */
+    void invalidate() {
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] != null) {
+                tiles[i].flush();
+                tiles[i] = null;
+            }
+        }
+    }
+
+    private Image createTile(final Tetrominoes tetrominoes) {
+        Image tile = component.createVolatileImage(tileWidth, tileHeight);
+        if (tile == null) {
+            final GraphicsConfiguration gc = component.getGraphicsConfiguration();
+            tile = (gc == null) ? new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_INT_RGB)
+                    : gc.createCompatibleImage(tileWidth, tileHeight, Transparency.OPAQUE);
+        }
+
+        renderTile(tile, tetrominoes);
+        return tile;
+    }
+
+    /**
+     * 画图块： 用颜色填充方格，左上两条边框用亮色，右下两条边框用暗色。
+     */
+    private void renderTile(final Image tile, final Tetrominoes tetrominoes) {
+        final Color color = tetrominoes.getColor();
+        final int w = tileWidth;
+        final int h = tileHeight;
+
+        final Graphics2D g = (Graphics2D) tile.getGraphics();
+        try {
+            // 边框没有覆盖的角落使用组件背景色
+            g.setColor(component.getBackground());
+            g.fillRect(0, 0, w, h);
+
+            // 用颜色画方格
+            g.setColor(color);
+            g.fillRect(1, 1, w - 2, h - 2);
+
+            // 画方格左上两个边框
+            g.setColor(color.brighter());
+            g.drawLine(0, h - 1, 0, 0);
+            g.drawLine(0, 0, w - 1, 0);
+            // 画方格右下两个边框
+            g.setColor(color.darker());
+            g.drawLine(1, h - 1, w - 1, h - 1);
+            g.drawLine(w - 1, h - 1, w - 1, 1);
+        } finally {
+            g.dispose();
+        }
+    }
+}